@@ -0,0 +1,80 @@
+package com.asymptote.gamelib.core;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Model and camera matrix math. Transformable is benchmarked through a bare
+ * subclass rather than a Renderable, so no OpenGL objects are created.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark
+{
+	private static class Body extends Transformable
+	{
+	}
+	
+	private Body body;
+	private Camera camera;
+	private Matrix4f model;
+	
+	@Setup
+	public void setup()
+	{
+		body = new Body();
+		body.setScale(2, 2, 2).setOrigin(-1, -1, 0).rotate(30, 0, 0, 1);
+		
+		model = new Matrix4f().translate(1, 2, 3);
+		
+		camera = new Camera();
+		camera.setFrustum(800, 600, 60, 0.1f, 500.0f);
+		camera.moveTo(0, -25, 15);
+		camera.lookAt(0, 0, 0, 0, 0, 1);
+	}
+	
+	@Benchmark
+	public Matrix4f modelMatrix()
+	{
+		return body.getModelMatrix();
+	}
+	
+	@Benchmark
+	public Matrix4f modelMatrixAfterMove()
+	{
+		body.move(0, 0.01f, 0);
+		
+		return body.getModelMatrix();
+	}
+	
+	@Benchmark
+	public FloatBuffer cameraMVP()
+	{
+		return camera.getMVP();
+	}
+	
+	@Benchmark
+	public FloatBuffer cameraMVPAfterMove()
+	{
+		camera.move(0, 0.01f, 0);
+		camera.setModelMatrix(model);
+		
+		return camera.getMVP();
+	}
+}
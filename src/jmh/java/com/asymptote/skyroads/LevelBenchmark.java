@@ -0,0 +1,148 @@
+package com.asymptote.skyroads;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a level and the per step work of playing it: finding the panel under
+ * a point, colliding the ship with the level, and moving the ship. None of it
+ * needs an OpenGL context.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelBenchmark
+{
+	private static final double DELTA = 1.0/30;
+	private static final int POINTS = 1024;
+	
+	@Param({"res/testlevel"})
+	public String levelPath;
+	
+	private byte[] levelText;
+	private Level level;
+	private float[][] points;
+	private int next;
+	
+	private LevelSimulation sim;
+	private Ship ship;
+	
+	@Setup
+	public void setup() throws IOException
+	{
+		levelText = Files.readAllBytes(Paths.get(levelPath));
+		level = Level.loadLevel(levelPath);
+		
+		if (level == null)
+			throw new IllegalStateException("Could not load " + levelPath);
+		
+		points = samplePoints(level.getData(), new Random(42));
+		
+		sim = new LevelSimulation();
+		sim.setSeed(42);
+		sim.setLevel(level);
+		sim.setShip(new Ship());
+		sim.startScene();
+		
+		ship = new Ship();
+		ship.setGravity(level.getGravityFactor());
+		ship.setPosition(level.getStart());
+		ship.accelerate(true);
+	}
+	
+	/**
+	 * Points spread over the level's bounds, a little above and below its
+	 * panels, so some hit and some miss.
+	 */
+	private static float[][] samplePoints(LevelData data, Random random)
+	{
+		float minX = 0, maxX = 0, minDist = 0, maxDist = 0, minAlt = 0, maxAlt = 0;
+		
+		for (int i = 0; i < data.getPanelCount(); i++)
+		{
+			minX = Math.min(minX, data.getHorzPos(i));
+			maxX = Math.max(maxX, data.getHorzPos(i) + data.getWidth(i));
+			minDist = Math.min(minDist, data.getDistance(i));
+			maxDist = Math.max(maxDist, data.getDistance(i) + data.getLength(i));
+			minAlt = Math.min(minAlt, data.getAltitude(i) - data.getHeight(i));
+			maxAlt = Math.max(maxAlt, data.getAltitude(i));
+		}
+		
+		float[][] points = new float[POINTS][];
+		for (int i = 0; i < POINTS; i++)
+			points[i] = new float[] {minX + random.nextFloat()*(maxX-minX),
+									 minDist + random.nextFloat()*(maxDist-minDist),
+									 minAlt-1 + random.nextFloat()*(maxAlt-minAlt+2)};
+		
+		return points;
+	}
+	
+	@Benchmark
+	public LevelData parse() throws IOException
+	{
+		return LevelParser.parse(new ByteArrayInputStream(levelText));
+	}
+	
+	@Benchmark
+	public LevelData parseParallel() throws IOException
+	{
+		return LevelParser.parse(ByteBuffer.wrap(levelText));
+	}
+	
+	@Benchmark
+	public int findPanel()
+	{
+		next = (next+1) & (POINTS-1);
+		
+		return level.findPanel(points[next]);
+	}
+	
+	@Benchmark
+	public void checkCollisions()
+	{
+		sim.checkCollisions();
+	}
+	
+	@Benchmark
+	public void shipUpdate()
+	{
+		ship.update(DELTA);
+		
+		// Nothing to land on, so start again once it has fallen a long way.
+		if (ship.getAltitude() < -1000)
+		{
+			ship.reset();
+			ship.setPosition(level.getStart());
+			ship.accelerate(true);
+		}
+	}
+	
+	@Benchmark
+	public void simulationStep()
+	{
+		sim.update(DELTA);
+		
+		if (sim.atEnd() || sim.getPlayer().getState() != Player.State.ALIVE)
+			sim.reset();
+	}
+}
@@ -0,0 +1,148 @@
+package com.asymptote.skyroads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point queries against {@link PanelIndex} for courses of increasing length,
+ * next to a plain linear scan over the same panels. The index should stay
+ * flat while the scan grows with the number of panels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PanelIndexBenchmark
+{
+	private static final int LANES = 6;
+	private static final int LANE_WIDTH = 10;
+	private static final int ROW_LENGTH = 20;
+
+	private static final int PROBES = 1 << 16;
+	private static final int CHECKS = 10000;
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int panelCount;
+
+	private int[][] panels;
+	private PanelIndex index;
+	private float[] probes;
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		panels = makeCourse(panelCount, new Random(panelCount));
+
+		index = new PanelIndex();
+		for (int[] p : panels)
+			index.add(p[0], p[1], p[2], p[3], p[4], p[5]);
+		index.build();
+
+		probes = makeProbes(panelCount, new Random(~panelCount));
+
+		verify();
+	}
+
+	@Benchmark
+	public int find()
+	{
+		int i = nextProbe();
+
+		return index.find(probes[i], probes[i+1], probes[i+2]);
+	}
+
+	@Benchmark
+	public int scan()
+	{
+		int i = nextProbe();
+
+		return scan(panels, probes[i], probes[i+1], probes[i+2]);
+	}
+
+	private int nextProbe()
+	{
+		next = (next+1) & (PROBES-1);
+
+		return next*3;
+	}
+
+	// Rows of lanes, with the odd gap or raised block, like a hand made course.
+	private static int[][] makeCourse(int size, Random rand)
+	{
+		int[][] panels = new int[size][];
+
+		for (int i = 0; i < size; i++)
+		{
+			int lane = i % LANES;
+			int row = i / LANES;
+
+			int altitude = (rand.nextInt(8) == 0) ? 5 : 0;
+			int height = (altitude > 0) ? 6 : 1;
+			int width = (rand.nextInt(10) == 0) ? 0 : LANE_WIDTH;
+
+			panels[i] = new int[] {(lane-LANES/2)*LANE_WIDTH, row*ROW_LENGTH, altitude, width, ROW_LENGTH, height};
+		}
+
+		return panels;
+	}
+
+	private static float[] makeProbes(int size, Random rand)
+	{
+		float length = (size/LANES + 1)*ROW_LENGTH;
+		float[] probes = new float[PROBES*3];
+
+		for (int i = 0; i < probes.length; i += 3)
+		{
+			probes[i] = (rand.nextFloat()-.5f)*(LANES+2)*LANE_WIDTH;
+			probes[i+1] = rand.nextFloat()*length;
+			probes[i+2] = rand.nextFloat()*8 - 2;
+		}
+
+		return probes;
+	}
+
+	// The index has to agree with the scan, or the timings mean nothing.
+	private void verify()
+	{
+		int checks = Math.min(PROBES, Math.max(100, CHECKS*1000/panelCount));
+
+		for (int i = 0; i < checks*3; i += 3)
+		{
+			int expected = scan(panels, probes[i], probes[i+1], probes[i+2]);
+			int actual = index.find(probes[i], probes[i+1], probes[i+2]);
+
+			if (expected != actual)
+				throw new IllegalStateException("Index returned panel " + actual + " where a scan found " + expected);
+		}
+	}
+
+	private static int scan(int[][] panels, float x, float y, float z)
+	{
+		for (int id = 0; id < panels.length; id++)
+		{
+			int[] p = panels[id];
+
+			if ((x >= p[0] && x <= p[0]+p[3]) &&
+				(y >= p[1] && y <= p[1]+p[4]) &&
+				(z <= p[2] && z >= p[2]-p[5]))
+				return id;
+		}
+
+		return -1;
+	}
+}
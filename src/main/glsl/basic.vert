@@ -1,6 +1,11 @@
 #version 150 core
 
-uniform mat4 mvpMatrix;
+layout(std140) uniform Camera
+{
+	mat4 viewProj;
+};
+
+uniform mat4 modelMatrix;
 
 in vec4 in_Position;
 in vec4 in_Color;
@@ -9,6 +14,6 @@ out vec4 pass_Color;
 
 void main(void)
 {
-	gl_Position = mvpMatrix * in_Position;
+	gl_Position = viewProj * modelMatrix * in_Position;
 	pass_Color = in_Color;
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+#version 150 core
+
+layout(std140) uniform Camera
+{
+	mat4 viewProj;
+};
+
+// in_Offset and in_Size are bound to PanelInstances.OFFSET_ATTRIB and
+// SIZE_ATTRIB when the program is linked.
+in vec4 in_Position;
+in vec4 in_Color;
+in vec3 in_Offset;
+in vec3 in_Size;
+
+out vec4 pass_Color;
+
+void main(void)
+{
+	vec4 corner = vec4(in_Offset + in_Position.xyz * in_Size, 1.0);
+	
+	// Instances are placed in world space, so there's no model matrix.
+	gl_Position = viewProj * corner;
+	pass_Color = in_Color;
+}
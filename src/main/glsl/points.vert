@@ -1,12 +1,17 @@
 #version 150 core
 
-uniform mat4 mvpMatrix;
+layout(std140) uniform Camera
+{
+	mat4 viewProj;
+};
+
+uniform mat4 modelMatrix;
 
 in vec4 in_Position;
 
 void main(void)
 {
-	gl_Position = mvpMatrix * in_Position;
+	gl_Position = viewProj * modelMatrix * in_Position;
 	
 	gl_PointSize = 5;
 }
\ No newline at end of file
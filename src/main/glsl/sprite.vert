@@ -6,14 +6,14 @@ in vec2 in_TexCoord;
 
 uniform float width;
 uniform float height;
-uniform mat4 modelMat;
+uniform mat4 modelMatrix;
 
 out vec4 pass_Color;
 out vec2 pass_TexCoord;
 
 void main(void)
 {
-	gl_Position = modelMat * in_Position;
+	gl_Position = modelMatrix * in_Position;
 	gl_Position = vec4(gl_Position.x/(width/2), gl_Position.y/(height/2), gl_Position.z/-100, gl_Position.w);
 	//gl_Position = in_Position;
 	
@@ -19,7 +19,7 @@ import org.joml.Vector3f;
 
 import static java.lang.Math.*;
 
-import com.asymptote.gamelib.graphics.ShaderProgram;
+import com.asymptote.gamelib.graphics.CameraBlock;
 
 public class Camera
 {
@@ -48,6 +48,10 @@ public class Camera
 	boolean viewChanged;
 	boolean modelChanged;
 	
+	// Bumped whenever the view or projection changes, so the shared camera
+	// block knows when it has to be uploaded again.
+	private int revision;
+	
 	FloatBuffer mvpBuffer;
 	
 	public Camera()
@@ -76,9 +80,7 @@ public class Camera
 	{
 		global = this;
 		
-		ShaderProgram prog = ShaderProgram.getGlobal();
-		if (prog != null)
-			prog.use();
+		CameraBlock.update(this);
 		
 		//System.out.println(model.toString());
 		
@@ -116,6 +118,7 @@ public class Camera
 		proj.m33(0);
 		
 		projChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -127,6 +130,7 @@ public class Camera
 		pos.z = z;
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -138,6 +142,7 @@ public class Camera
 		pos.z += z;
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -147,6 +152,7 @@ public class Camera
 		orient.rotate((float)Math.toRadians(angle), Z_AXIS);
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -156,6 +162,7 @@ public class Camera
 		orient.rotate((float)Math.toRadians(angle), X_AXIS);
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -165,6 +172,7 @@ public class Camera
 		orient.rotate((float)Math.toRadians(angle), Y_AXIS);
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -181,6 +189,7 @@ public class Camera
 		//System.out.println("orientation matrix:\n" + orient.toString());
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -190,6 +199,7 @@ public class Camera
 		lookAt(x, y, z, 0, 1, 0);
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -246,6 +256,7 @@ public class Camera
 		*/
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -294,6 +305,7 @@ public class Camera
 		//System.out.println("quaternion value: " + q4.toString());
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -305,6 +317,7 @@ public class Camera
 		scale.z = z;
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -316,6 +329,7 @@ public class Camera
 		orient.identity();
 		
 		viewChanged = true;
+		revision++;
 		
 		return this;
 	}
@@ -338,6 +352,27 @@ public class Camera
 		return this;
 	}
 	
+	/**
+	 * Changes every time the view or projection does.
+	 */
+	public int getRevision()
+	{
+		return revision;
+	}
+	
+	/**
+	 * Stores the combined projection and view matrix (no model transform) in
+	 * dest. Doesn't touch the cached MVP.
+	 */
+	public Matrix4f getViewProjection(Matrix4f dest)
+	{
+		dest.identity().translate(-pos.x, -pos.y, -pos.z);
+		orient.mul(dest, dest);
+		dest.scale(scale);
+		
+		return proj.mul(dest, dest);
+	}
+	
 	private void recalcView()
 	{
 		//System.out.println("Pos:\n" + pos.toString());
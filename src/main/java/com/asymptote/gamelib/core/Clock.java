@@ -30,7 +30,7 @@ public class Clock
 	private static double goalSPF = DEFAULT_SPF;
 	
 	private static double totalTime = 0;
-	private static double accumTime = 0;
+	private static volatile double accumTime = 0;	// read by the render thread when updates are threaded
 	private static double deltaTime = 0;
 	private static double frameTime = 0;
 	private static double lastTime = 0;
@@ -52,6 +52,22 @@ public class Clock
 		return accumTime;
 	}
 	
+	/**
+	 * When the clock was last updated, on the same scale as {@link #now()}.
+	 */
+	public static double time()
+	{
+		return currTime;
+	}
+	
+	/**
+	 * The time right now, in seconds from an arbitrary start.
+	 */
+	public static double now()
+	{
+		return System.nanoTime()/NSEC;
+	}
+	
 	public static double fixDelta()
 	{
 		return goalSPF;
@@ -76,7 +92,7 @@ public class Clock
 	public static void update()
 	{
 		lastTime = (currTime == 0)?System.nanoTime()/NSEC:currTime;
-		currTime = System.nanoTime()/NSEC;
+		currTime = now();
 		deltaTime = currTime - lastTime;
 		frameTime = Math.min(deltaTime,MAX_DELTA);
 		accumTime += frameTime;
@@ -0,0 +1,94 @@
+package com.asymptote.gamelib.core;
+
+/**
+ * How long each part of the game loop takes, frame by frame. An average FPS
+ * hides the odd long frame; the percentiles and maximum here don't.
+ *
+ * Durations are in nanoseconds. {@link Phase#UPDATE} is timed per fixed
+ * step, the other phases once per frame. The number of fixed steps run to
+ * catch up is kept too, per frame (or per wake up of the update thread, when
+ * updates are threaded).
+ */
+public class FrameStats
+{
+	public enum Phase
+	{
+		UPDATE, RENDER, POLL, SWAP, FRAME
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private Histogram[] phases = new Histogram[PHASES.length];
+	private Histogram steps = new Histogram();
+
+	private long since = System.nanoTime();
+
+	public FrameStats()
+	{
+		for (int i = 0; i < phases.length; i++)
+			phases[i] = new Histogram();
+	}
+
+	public void record(Phase phase, long nanos)
+	{
+		phases[phase.ordinal()].record(nanos);
+	}
+
+	public void recordSteps(int count)
+	{
+		steps.record(count);
+	}
+
+	public Histogram get(Phase phase)
+	{
+		return phases[phase.ordinal()];
+	}
+
+	/**
+	 * Catch up steps run per frame.
+	 */
+	public Histogram getSteps()
+	{
+		return steps;
+	}
+
+	/**
+	 * Seconds since the stats were last reset.
+	 */
+	public double getElapsed()
+	{
+		return (System.nanoTime() - since) / Clock.NSEC;
+	}
+
+	public void reset()
+	{
+		for (Histogram h : phases)
+			h.reset();
+
+		steps.reset();
+		since = System.nanoTime();
+	}
+
+	/**
+	 * A table of p50/p99/max for every phase, in milliseconds, and of the
+	 * steps run per frame.
+	 */
+	public String report()
+	{
+		StringBuilder out = new StringBuilder();
+
+		out.append(String.format("%-8s %8s %8s %8s %8s%n", "phase", "count", "p50 ms", "p99 ms", "max ms"));
+
+		for (Phase phase : PHASES)
+		{
+			Histogram h = get(phase);
+			out.append(String.format("%-8s %8d %8.3f %8.3f %8.3f%n", phase.name().toLowerCase(), h.getCount(),
+					h.percentile(.5)/Clock.NINM, h.percentile(.99)/Clock.NINM, h.getMax()/Clock.NINM));
+		}
+
+		out.append(String.format("%-8s %8d %8d %8d %8d%n", "steps", steps.getCount(),
+				steps.percentile(.5), steps.percentile(.99), steps.getMax()));
+
+		return out.toString();
+	}
+}
@@ -12,6 +12,7 @@
 package com.asymptote.gamelib.core;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.lwjgl.*;
 import org.lwjgl.glfw.*;
@@ -24,6 +25,8 @@ import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.system.MemoryUtil.*;
 
 import com.asymptote.gamelib.core.Clock;
+import com.asymptote.gamelib.graphics.GLState;
+import com.asymptote.gamelib.graphics.GPUProfiler;
 
 public abstract class GameWindow
 {
@@ -38,7 +41,7 @@ public abstract class GameWindow
     private boolean windowed = true;    
 	
 	private double fps;
-	private double ups;
+	private volatile double ups;
 	
 	// For FPS calculations.
 	private double deltaFPS;
@@ -52,13 +55,28 @@ public abstract class GameWindow
 	
 	private boolean showFPS;
 	private boolean showUPS;
+	private boolean showGLStats;
 	private boolean precise;
 	
 	protected String title;	
+	
+	private StringBuilder titleBuilder = new StringBuilder();
+	private long titleFPS = -1;
+	private long titleUPS = -1;
+	private int titleSkipped = -1;
+	
+	private FrameStats stats = new FrameStats();
+	private double statsInterval;
  
     // The window handle
     private long window;
-    private boolean running;
+    private volatile boolean running;
+    
+    // When set, updates run on their own thread, and key events are queued
+    // for it instead of being handled on the render thread.
+    private boolean threaded;
+    private Thread updateThread;
+    private ConcurrentLinkedQueue<int[]> keyEvents = new ConcurrentLinkedQueue<int[]>();
 
     // We need to strongly reference callback instances.
     private Callback debugProc;
@@ -155,7 +173,10 @@ public abstract class GameWindow
 
         // Setup a key callback. It will be called every time a key is pressed, repeated or released.
         glfwSetKeyCallback(window, (long window, int key, int scancode, int action, int mods) -> {
-                keyCallback(key, scancode, action, mods);
+                if (threaded)
+                    keyEvents.add(new int[] {key, scancode, action, mods});
+                else
+                    keyCallback(key, scancode, action, mods);
         });
         
         // Setup a mouse button callback. It will be called every time a mouse button is pressed, repeated or released.      
@@ -192,6 +213,27 @@ public abstract class GameWindow
     protected abstract void update(double delta);
     
     protected abstract void render();
+    
+    /**
+     * Called instead of {@link #render()} when updates run on their own
+     * thread. time is the {@link Clock#now()} the frame is drawn at; held up
+     * against the time passed to {@link #publish(double)} with the states it
+     * interpolates between, it says how far between them to draw.
+     */
+    protected void render(double time)
+    {
+        render();
+    }
+    
+    /**
+     * Called on the update thread after every update, when updates run on
+     * their own thread. Anything the render thread needs from the update
+     * should be handed over here, along with time: the Clock time the state
+     * belongs at, from which it's a whole step to the next update's.
+     */
+    protected void publish(double time)
+    {
+    }
 
     protected abstract void cleanup();
     
@@ -217,9 +259,20 @@ public abstract class GameWindow
 		ups = 0;
 		running = true;
 		
-		String title = this.title;
+		if (threaded)
+			threadedLoop();
+		else
+			singleLoop();
+		
+		cleanup();
+	}
+	
+	private void singleLoop()
+	{
 		while (!glfwWindowShouldClose(window) && running)
 		{
+			long frameStart = System.nanoTime();
+			
 			Clock.update();
 			
 			if (showFPS && precise)
@@ -227,41 +280,213 @@ public abstract class GameWindow
 			if (showFPS && !precise)
 				fps = calcFPS(Clock.delta());
 			
+			long start = System.nanoTime();
 			render();
+			GLState.endFrame();
+			GPUProfiler.endFrame();
+			long end = System.nanoTime();
+			stats.record(FrameStats.Phase.RENDER, end - start);
+			
 			glfwPollEvents();
+			start = end;
+			end = System.nanoTime();
+			stats.record(FrameStats.Phase.POLL, end - start);
 
+			int steps = 0;
 			while (Clock.accum() >= Clock.fixDelta())
 			{
+				start = System.nanoTime();
 				update(Clock.fixDelta());
+				stats.record(FrameStats.Phase.UPDATE, System.nanoTime() - start);
 
 				Clock.step();
+				steps++;
 				
 				if (showUPS)
 					ups = calcUPS(Clock.fixDelta());
 			}
+			stats.recordSteps(steps);
 			
+			start = System.nanoTime();
 			glfwSwapBuffers(window);
+			end = System.nanoTime();
+			stats.record(FrameStats.Phase.SWAP, end - start);
+			stats.record(FrameStats.Phase.FRAME, end - frameStart);
 			
-			if (showFPS || showUPS)
+			updateTitle();
+			logStats();
+		}
+	}
+	
+	/**
+	 * Renders on this thread, as often as the display allows, while
+	 * {@link #updateLoop()} runs the fixed step updates on another. The update
+	 * thread owns the Clock; the render thread only reads the time, and works
+	 * out where it is between updates from the time published with them.
+	 */
+	private void threadedLoop()
+	{
+		updateThread = new Thread(this::updateLoop, "update");
+		updateThread.setDaemon(true);
+		updateThread.start();
+		
+		long lastFrame = System.nanoTime();
+		
+		while (!glfwWindowShouldClose(window) && running)
+		{
+			long now = System.nanoTime();
+			double elapsed = (now - lastFrame) / Clock.NSEC;
+			lastFrame = now;
+			
+			if (showFPS && precise)
+				fps = calcPreciseFPS(elapsed);
+			if (showFPS && !precise)
+				fps = calcFPS(elapsed);
+			
+			render(Clock.now());
+			GLState.endFrame();
+			GPUProfiler.endFrame();
+			long end = System.nanoTime();
+			stats.record(FrameStats.Phase.RENDER, end - now);
+			
+			long start = end;
+			glfwPollEvents();
+			end = System.nanoTime();
+			stats.record(FrameStats.Phase.POLL, end - start);
+			
+			start = end;
+			glfwSwapBuffers(window);
+			end = System.nanoTime();
+			stats.record(FrameStats.Phase.SWAP, end - start);
+			stats.record(FrameStats.Phase.FRAME, end - now);
+			
+			updateTitle();
+			logStats();
+		}
+		
+		running = false;
+		
+		try
+		{
+			updateThread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void updateLoop()
+	{
+		while (running)
+		{
+			int[] event;
+			while ((event = keyEvents.poll()) != null)
+				keyCallback(event[0], event[1], event[2], event[3]);
+			
+			Clock.update();
+			
+			int steps = 0;
+			while (Clock.accum() >= Clock.fixDelta())
 			{
-				title = this.title + " -- ";
+				long start = System.nanoTime();
+				update(Clock.fixDelta());
+				stats.record(FrameStats.Phase.UPDATE, System.nanoTime() - start);
+
+				Clock.step();
+				steps++;
 				
-				if (showFPS)
-				{
-					title += "FPS: " + String.format("%.2f", fps);
-					if (showUPS)
-						title += "  |  ";
-				}
+				// What's left in the accumulator is how long ago this state
+				// was due.
+				publish(Clock.time() - Clock.accum());
 				
 				if (showUPS)
-					title += "UPS: " + ups;
-				
-				glfwSetWindowTitle(window, title);
+					ups = calcUPS(Clock.fixDelta());
+			}
+			
+			if (steps > 0)
+				stats.recordSteps(steps);
+			
+			// Wake up often enough to keep the accumulator fresh for the
+			// render thread, without spinning.
+			try
+			{
+				Thread.sleep(1);
+			}
+			catch (InterruptedException e)
+			{
+				running = false;
 			}
-
 		}
-		
-		cleanup();
+	}
+	
+	/**
+	 * Only rebuilds the title when the numbers shown in it change, and then
+	 * into a reused builder, so frames don't create garbage strings.
+	 */
+	private void updateTitle()
+	{
+		if (showFPS || showUPS || showGLStats)
+		{
+			long shownFPS = Math.round(fps*100);
+			long shownUPS = Math.round(ups*10);
+			int shownSkipped = GLState.getFrameSkipped();
+			
+			if (shownFPS == titleFPS && shownUPS == titleUPS && shownSkipped == titleSkipped)
+				return;
+			
+			titleFPS = shownFPS;
+			titleUPS = shownUPS;
+			titleSkipped = shownSkipped;
+			
+			titleBuilder.setLength(0);
+			titleBuilder.append(this.title).append(" -- ");
+			
+			if (showFPS)
+			{
+				titleBuilder.append("FPS: ").append(shownFPS/100).append('.');
+				appendDigits(titleBuilder, shownFPS%100, 2);
+				if (showUPS)
+					titleBuilder.append("  |  ");
+			}
+			
+			if (showUPS)
+			{
+				titleBuilder.append("UPS: ").append(shownUPS/10).append('.');
+				appendDigits(titleBuilder, shownUPS%10, 1);
+				if (showGLStats)
+					titleBuilder.append("  |  ");
+			}
+			
+			if (showGLStats)
+				titleBuilder.append("GL skipped: ").append(shownSkipped).append('/').append(GLState.getFrameCalls());
+			
+			glfwSetWindowTitle(window, titleBuilder);
+		}
+	}
+	
+	/**
+	 * Prints and resets the frame stats once the logging interval has passed.
+	 */
+	private void logStats()
+	{
+		if (statsInterval > 0 && stats.getElapsed() >= statsInterval)
+		{
+			System.out.print(stats.report());
+			stats.reset();
+			
+			if (GPUProfiler.isEnabled())
+			{
+				System.out.print(GPUProfiler.report());
+				GPUProfiler.reset();
+			}
+		}
+	}
+	
+	private static void appendDigits(StringBuilder builder, long value, int digits)
+	{
+		for (long place = (long)Math.pow(10, digits-1); place > 0; place /= 10)
+			builder.append((char)('0' + (value/place)%10));
 	}
 	
 	private double calcPreciseFPS(double elapsedTime)
@@ -341,11 +566,52 @@ public abstract class GameWindow
 		showUPS = show;
 	}
 	
+	/**
+	 * Shows how many of the last frame's GL state changes the state cache
+	 * found redundant, out of how many were asked for.
+	 */
+	public void showGLStats(boolean show)
+	{
+		showGLStats = show;
+	}
+	
+	/**
+	 * Timings of every phase of the game loop, collected all the time.
+	 */
+	public FrameStats getFrameStats()
+	{
+		return stats;
+	}
+	
+	/**
+	 * Prints the frame stats every given number of seconds, starting over
+	 * after each. 0 turns it off.
+	 */
+	public void logFrameStats(double seconds)
+	{
+		statsInterval = seconds;
+	}
+	
 	public void preciseFPS(boolean precise)
 	{
 		this.precise = precise;
 	}
 	
+	/**
+	 * Runs updates on their own thread, separate from rendering. Has to be
+	 * set before the game is run. Key callbacks are then delivered on the
+	 * update thread, and render(double) is used instead of render().
+	 */
+	public void setThreadedUpdate(boolean threaded)
+	{
+		this.threaded = threaded;
+	}
+	
+	public boolean isThreadedUpdate()
+	{
+		return threaded;
+	}
+	
 	public void stop()
     {
         running = false;
@@ -0,0 +1,93 @@
+package com.asymptote.gamelib.core;
+
+/**
+ * The fixed step update loop of {@link GameWindow}, without a window or an
+ * OpenGL context. Steps are run back to back, as fast as the CPU allows, for
+ * running levels on machines without a display.
+ */
+public abstract class HeadlessGame
+{
+	private long maxSteps;
+	private long steps;
+	private boolean running;
+	
+	private long startTime;
+	private long endTime;
+	
+	public HeadlessGame()
+	{
+	}
+	
+	/**
+	 * @param maxSteps	the most updates to run before stopping, or 0 to run
+	 * 					until {@link #stop()} is called.
+	 */
+	public HeadlessGame(long maxSteps)
+	{
+		this.maxSteps = maxSteps;
+	}
+	
+	public void run()
+	{
+		init();
+		loop();
+	}
+	
+	protected abstract void init();
+	
+	protected abstract void update(double delta);
+	
+	protected abstract void cleanup();
+	
+	public void loop()
+	{
+		steps = 0;
+		running = true;
+		
+		startTime = System.nanoTime();
+		
+		while (running && (maxSteps <= 0 || steps < maxSteps))
+		{
+			update(Clock.fixDelta());
+			steps++;
+		}
+		
+		endTime = System.nanoTime();
+		running = false;
+		
+		cleanup();
+	}
+	
+	public void stop()
+	{
+		running = false;
+	}
+	
+	public long getSteps()
+	{
+		return steps;
+	}
+	
+	/**
+	 * The amount of game time covered by the steps run so far, in seconds.
+	 */
+	public double getSimulatedTime()
+	{
+		return steps * Clock.fixDelta();
+	}
+	
+	/**
+	 * The wall clock time the last run took, in seconds.
+	 */
+	public double getElapsedTime()
+	{
+		return (endTime - startTime) / Clock.NSEC;
+	}
+	
+	public double getUPS()
+	{
+		double elapsed = getElapsedTime();
+		
+		return (elapsed > 0) ? steps / elapsed : 0;
+	}
+}
@@ -0,0 +1,118 @@
+package com.asymptote.gamelib.core;
+
+import java.util.Arrays;
+
+/**
+ * Counts non-negative values (usually durations in nanoseconds) into a fixed
+ * set of buckets, allocated once, so recording is cheap enough to do every
+ * frame. Values below 64 get a bucket each; above that every power of two is
+ * split into 32 buckets, so a percentile is never off by more than about 3%.
+ *
+ * Not synchronized. A read racing a write can miss that one value, which
+ * doesn't matter for statistics.
+ */
+public class Histogram
+{
+	private static final int LINEAR = 64;
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int LINEAR_BITS = 6;
+
+	private static final int BUCKETS = LINEAR + (63-LINEAR_BITS)*SUB_BUCKETS;
+
+	private final int[] counts = new int[BUCKETS];
+
+	private long total;
+	private long max;
+	private long sum;
+
+	public void record(long value)
+	{
+		if (value < 0)
+			value = 0;
+
+		counts[bucket(value)]++;
+
+		total++;
+		sum += value;
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * The smallest recorded value that at least the given fraction (0 to 1)
+	 * of values are no larger than, to within a bucket. 0 if nothing was
+	 * recorded.
+	 */
+	public long percentile(double fraction)
+	{
+		if (total == 0)
+			return 0;
+
+		long target = (long)Math.ceil(fraction * total);
+		if (target < 1)
+			target = 1;
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts[i];
+			if (seen >= target)
+				return Math.min(highest(i), max);
+		}
+
+		return max;
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	public double getMean()
+	{
+		return (total == 0) ? 0 : (double)sum / total;
+	}
+
+	public long getCount()
+	{
+		return total;
+	}
+
+	public void reset()
+	{
+		Arrays.fill(counts, 0);
+
+		total = 0;
+		max = 0;
+		sum = 0;
+	}
+
+	private static int bucket(long value)
+	{
+		if (value < LINEAR)
+			return (int)value;
+
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exp - SUB_BITS)) & (SUB_BUCKETS-1);
+
+		return LINEAR + (exp-LINEAR_BITS)*SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * The largest value that lands in the given bucket.
+	 */
+	private static long highest(int bucket)
+	{
+		if (bucket < LINEAR)
+			return bucket;
+
+		int exp = (bucket-LINEAR)/SUB_BUCKETS + LINEAR_BITS;
+		int sub = (bucket-LINEAR)%SUB_BUCKETS;
+		int shift = exp - SUB_BITS;
+
+		long lowest = (1L << exp) + ((long)sub << shift);
+
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,147 @@
+package com.asymptote.gamelib.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands state snapshots from the update thread to the render thread. The two
+ * most recent snapshots are always published together, along with the time
+ * they're for, so the render thread can interpolate between them without
+ * locking and without ever seeing a half written state.
+ *
+ * It's a triple buffer: the update thread fills one slot while the render
+ * thread reads another, and the third holds the newest published pair. Slots
+ * are swapped with a single atomic exchange, and the snapshots in them are
+ * made once up front and copied into, so publishing allocates nothing.
+ *
+ * @param <S>	the snapshot type.
+ */
+public class SnapshotBuffer<S extends SnapshotBuffer.Snapshot<S>>
+{
+	/**
+	 * A snapshot that can be overwritten with a copy of another.
+	 */
+	public interface Snapshot<S>
+	{
+		void set(S other);
+	}
+
+	/**
+	 * A previous and current snapshot, and the time the current one is for.
+	 * Owned by the render thread until its next {@link SnapshotBuffer#getLatest()}.
+	 */
+	public static final class Pair<S>
+	{
+		private final S previous;
+		private final S current;
+		private double time;
+
+		private Pair(S previous, S current)
+		{
+			this.previous = previous;
+			this.current = current;
+		}
+
+		public S getPrevious()
+		{
+			return previous;
+		}
+
+		public S getCurrent()
+		{
+			return current;
+		}
+
+		public double getTime()
+		{
+			return time;
+		}
+	}
+
+	// Set on the middle slot's index when it holds a pair the reader hasn't
+	// taken yet.
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+
+	private final Pair<S>[] slots;
+
+	// Update thread only: the slot being filled, and the last state published.
+	private int back = 0;
+	private final S last;
+	private boolean published;
+
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	// Render thread only.
+	private int front = 2;
+	private boolean taken;
+
+	public SnapshotBuffer(Supplier<S> factory)
+	{
+		@SuppressWarnings("unchecked")
+		Pair<S>[] pairs = (Pair<S>[])new Pair<?>[3];
+		slots = pairs;
+
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = new Pair<S>(factory.get(), factory.get());
+
+		last = factory.get();
+	}
+
+	/**
+	 * The snapshot to fill in before the next {@link #publish(double)} or
+	 * {@link #reset(double)}. Update thread only.
+	 */
+	public S getBack()
+	{
+		return slots[back].current;
+	}
+
+	/**
+	 * Publishes the back snapshot as the current one, with the old current
+	 * one as the previous.
+	 */
+	public void publish(double time)
+	{
+		Pair<S> pair = slots[back];
+
+		pair.previous.set(published ? last : pair.current);
+		swap(pair, time);
+	}
+
+	/**
+	 * Publishes the back snapshot as both the previous and current one, so
+	 * nothing is interpolated across a jump.
+	 */
+	public void reset(double time)
+	{
+		Pair<S> pair = slots[back];
+
+		pair.previous.set(pair.current);
+		swap(pair, time);
+	}
+
+	private void swap(Pair<S> pair, double time)
+	{
+		pair.time = time;
+		last.set(pair.current);
+		published = true;
+
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * The two most recent snapshots, or null if nothing was published yet.
+	 * The pair stays unchanged until the next call. Render thread only.
+	 */
+	public Pair<S> getLatest()
+	{
+		if ((middle.get() & FRESH) != 0)
+		{
+			front = middle.getAndSet(front) & INDEX;
+			taken = true;
+		}
+
+		return taken ? slots[front] : null;
+	}
+}
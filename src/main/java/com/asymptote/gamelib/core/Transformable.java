@@ -17,6 +17,10 @@ public abstract class Transformable {
     private Quaternionf orient = new Quaternionf();
     private Matrix4f model = new Matrix4f();
 
+	// Scratch space, so transforming doesn't allocate.
+	private Quaternionf rotation = new Quaternionf();
+	private Vector3f axis = new Vector3f();
+
 	private boolean changed = true;
 
 	public boolean transformChanged()
@@ -61,13 +65,12 @@ public abstract class Transformable {
 	{
 		double s = sin(toRadians(angle)/2);
 		
-		Vector3f v = new Vector3f(x,y,z);
-		v.normalize();
+		axis.set(x,y,z).normalize();
 		
 		orient.w = (float)cos(toRadians(angle)/2);
-		orient.x = (float)s*v.x;
-		orient.y = (float)s*v.y;
-		orient.z = (float)s*v.z;
+		orient.x = (float)s*axis.x;
+		orient.y = (float)s*axis.y;
+		orient.z = (float)s*axis.z;
 		
 		orient.normalize();
 		
@@ -95,7 +98,7 @@ public abstract class Transformable {
 		
 		//System.out.println(angle + "  " + rotAngle + "  " + (float)cos(rotAngle/2));
 		
-		Quaternionf q1 = new Quaternionf();
+		Quaternionf q1 = rotation;
 		
 		q1.w = (float)cos(r);
 		q1.x = (float)s*x;
@@ -141,7 +144,7 @@ public abstract class Transformable {
 		double tempAngle = acos(orient.w)*2;
 		double s = sin(tempAngle/2);
 		
-		Vector3f temp = new Vector3f();
+		Vector3f temp = axis;
 		temp.x = (float)(orient.x/s);
 		temp.y = (float)(orient.y/s);
 		temp.z = (float)(orient.z/s);
@@ -154,5 +157,7 @@ public abstract class Transformable {
 			 .translate(pos)
 			 .rotate((float)tempAngle, temp)
 			 .scale(scale);
+		
+		changed = false;
 	}
 }
\ No newline at end of file
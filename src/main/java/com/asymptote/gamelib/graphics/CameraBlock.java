@@ -0,0 +1,84 @@
+package com.asymptote.gamelib.graphics;
+
+import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+
+import com.asymptote.gamelib.core.Camera;
+
+/**
+ * The uniform buffer holding the camera's view-projection matrix, shared by
+ * every {@link ShaderProgram}. Shaders see it as
+ *
+ * <pre>
+ * layout(std140) uniform Camera
+ * {
+ *     mat4 viewProj;
+ * };
+ * </pre>
+ *
+ * and only their own model matrix is set per draw. The buffer is rewritten
+ * when a different camera is used or the current one has moved since the
+ * last upload, so normally once a frame.
+ */
+public class CameraBlock
+{
+	public static final String NAME = "Camera";
+	public static final int BINDING = 0;
+
+	private static final int SIZE = 16*4;
+
+	private static int bufferID;
+	private static Camera camera;
+	private static int revision;
+
+	private static Matrix4f viewProj = new Matrix4f();
+	private static FloatBuffer data = BufferUtils.createFloatBuffer(16);
+
+	/**
+	 * Brings the block up to date with the given camera. Cheap to call when
+	 * nothing changed.
+	 */
+	public static void update(Camera cam)
+	{
+		if (cam == null || (cam == camera && cam.getRevision() == revision))
+			return;
+
+		if (bufferID == 0)
+		{
+			bufferID = glGenBuffers();
+
+			GLState.bindBuffer(GL_UNIFORM_BUFFER, bufferID);
+			glBufferData(GL_UNIFORM_BUFFER, SIZE, GL_DYNAMIC_DRAW);
+			glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, bufferID);
+		}
+		else
+			GLState.bindBuffer(GL_UNIFORM_BUFFER, bufferID);
+
+		cam.getViewProjection(viewProj);
+
+		data.clear();
+		viewProj.get(data);
+		glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+
+		camera = cam;
+		revision = cam.getRevision();
+	}
+
+	public static void free()
+	{
+		if (bufferID != 0)
+			GLState.deleteBuffer(bufferID);
+
+		bufferID = 0;
+		camera = null;
+	}
+}
@@ -50,7 +50,7 @@ public class FrameBuffer extends Texture
 		ByteBuffer buffer = BufferUtils.createByteBuffer(width*height*4);
 
 		texID = glGenTextures();
-		glBindTexture(GL_TEXTURE_2D, texID);
+		GLState.bindTexture(GL_TEXTURE_2D, texID);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
@@ -78,7 +78,7 @@ public class FrameBuffer extends Texture
 	private void createFBO_Multisampled()
 	{
 		m_texID = glGenTextures();
-		glBindTexture(GL_TEXTURE_2D_MULTISAMPLE, m_texID);
+		GLState.bindTexture(GL_TEXTURE_2D_MULTISAMPLE, m_texID);
 		glTexImage2DMultisample(GL_TEXTURE_2D_MULTISAMPLE, NUM_SAMPLES, GL_RGBA, width, height, false);
 		printGlError("Created multisampled texture for fbo " + m_fboID);
 		
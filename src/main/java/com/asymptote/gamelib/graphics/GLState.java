@@ -0,0 +1,311 @@
+package com.asymptote.gamelib.graphics;
+
+import static org.lwjgl.opengl.GL11.GL_FRONT_AND_BACK;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL11.glPolygonMode;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL20.glDeleteProgram;
+import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the OpenGL state set through it, and drops calls that would set
+ * something to what it already is. Covers the program in use, the vertex
+ * array, array and element buffer bindings, enabled vertex attributes,
+ * polygon mode, and 2D textures per texture unit.
+ *
+ * The element buffer binding and enabled attributes belong to the bound
+ * vertex array object, so they're tracked per VAO. Everything that changes
+ * this state has to go through here for the cache to stay right; call
+ * {@link #invalidate()} after anything that doesn't.
+ */
+public class GLState
+{
+	private static final int UNKNOWN = -1;
+	private static final int MAX_TEXTURE_UNITS = 32;
+
+	private static int program = UNKNOWN;
+	private static int vertexArray = UNKNOWN;
+	private static int arrayBuffer = UNKNOWN;
+	private static int polygonMode = UNKNOWN;
+	private static int activeUnit = UNKNOWN;
+	private static int[] textures = new int[MAX_TEXTURE_UNITS];
+
+	// Per VAO, indexed by its id. An attribute's bit in knownAttribs says
+	// whether its bit in enabledAttribs can be trusted.
+	private static int[] elementBuffers = new int[0];
+	private static int[] enabledAttribs = new int[0];
+	private static int[] knownAttribs = new int[0];
+
+	private static int calls;
+	private static int skipped;
+	private static int lastFrameCalls;
+	private static int lastFrameSkipped;
+
+	static
+	{
+		Arrays.fill(textures, UNKNOWN);
+	}
+
+	public static void useProgram(int id)
+	{
+		calls++;
+		if (id == program)
+		{
+			skipped++;
+			return;
+		}
+
+		glUseProgram(id);
+		program = id;
+	}
+
+	public static void bindVertexArray(int id)
+	{
+		calls++;
+		if (id == vertexArray)
+		{
+			skipped++;
+			return;
+		}
+
+		glBindVertexArray(id);
+		vertexArray = id;
+
+		ensureVertexArray(id);
+	}
+
+	public static void bindBuffer(int target, int id)
+	{
+		calls++;
+
+		if (target == GL_ARRAY_BUFFER)
+		{
+			if (id == arrayBuffer)
+			{
+				skipped++;
+				return;
+			}
+
+			arrayBuffer = id;
+		}
+		else if (target == GL_ELEMENT_ARRAY_BUFFER && vertexArray != UNKNOWN)
+		{
+			if (id == elementBuffers[vertexArray])
+			{
+				skipped++;
+				return;
+			}
+
+			elementBuffers[vertexArray] = id;
+		}
+
+		glBindBuffer(target, id);
+	}
+
+	public static void enableVertexAttribArray(int index)
+	{
+		setVertexAttribArray(index, true);
+	}
+
+	public static void disableVertexAttribArray(int index)
+	{
+		setVertexAttribArray(index, false);
+	}
+
+	private static void setVertexAttribArray(int index, boolean enable)
+	{
+		calls++;
+
+		int bit = 1 << index;
+
+		if (vertexArray != UNKNOWN)
+		{
+			boolean enabled = (enabledAttribs[vertexArray] & bit) != 0;
+
+			if ((knownAttribs[vertexArray] & bit) != 0 && enabled == enable)
+			{
+				skipped++;
+				return;
+			}
+
+			knownAttribs[vertexArray] |= bit;
+			if (enable)
+				enabledAttribs[vertexArray] |= bit;
+			else
+				enabledAttribs[vertexArray] &= ~bit;
+		}
+
+		if (enable)
+			glEnableVertexAttribArray(index);
+		else
+			glDisableVertexAttribArray(index);
+	}
+
+	/**
+	 * Sets the polygon mode for both faces, the only way this engine uses it.
+	 */
+	public static void polygonMode(int mode)
+	{
+		calls++;
+		if (mode == polygonMode)
+		{
+			skipped++;
+			return;
+		}
+
+		glPolygonMode(GL_FRONT_AND_BACK, mode);
+		polygonMode = mode;
+	}
+
+	/**
+	 * Selects a texture unit, as GL_TEXTURE0 + n.
+	 */
+	public static void activeTexture(int unit)
+	{
+		calls++;
+		if (unit == activeUnit)
+		{
+			skipped++;
+			return;
+		}
+
+		glActiveTexture(unit);
+		activeUnit = unit;
+	}
+
+	/**
+	 * Binds a texture to the active unit. Only GL_TEXTURE_2D bindings are
+	 * cached, other targets are passed straight through.
+	 */
+	public static void bindTexture(int target, int id)
+	{
+		calls++;
+
+		int unit = activeUnit - GL_TEXTURE0;
+
+		if (target == GL_TEXTURE_2D && unit >= 0 && unit < MAX_TEXTURE_UNITS)
+		{
+			if (id == textures[unit])
+			{
+				skipped++;
+				return;
+			}
+
+			textures[unit] = id;
+		}
+
+		glBindTexture(target, id);
+	}
+
+	public static void deleteProgram(int id)
+	{
+		glDeleteProgram(id);
+
+		if (id == program)
+			program = UNKNOWN;
+	}
+
+	public static void deleteVertexArray(int id)
+	{
+		glDeleteVertexArrays(id);
+
+		// Deleting the bound VAO binds the default one in its place.
+		if (id == vertexArray)
+		{
+			vertexArray = 0;
+			ensureVertexArray(0);
+		}
+
+		if (id < elementBuffers.length)
+		{
+			elementBuffers[id] = UNKNOWN;
+			knownAttribs[id] = 0;
+		}
+	}
+
+	public static void deleteBuffer(int id)
+	{
+		glDeleteBuffers(id);
+
+		if (id == arrayBuffer)
+			arrayBuffer = 0;
+
+		for (int i = 0; i < elementBuffers.length; i++)
+			if (elementBuffers[i] == id)
+				elementBuffers[i] = UNKNOWN;
+	}
+
+	/**
+	 * Forgets everything, so the next call of each kind goes through. For
+	 * after state was changed behind this class's back.
+	 */
+	public static void invalidate()
+	{
+		program = UNKNOWN;
+		vertexArray = UNKNOWN;
+		arrayBuffer = UNKNOWN;
+		polygonMode = UNKNOWN;
+		activeUnit = UNKNOWN;
+
+		Arrays.fill(textures, UNKNOWN);
+		Arrays.fill(elementBuffers, UNKNOWN);
+		Arrays.fill(knownAttribs, 0);
+	}
+
+	/**
+	 * Closes the books on a frame. The counts since the last call become
+	 * available from {@link #getFrameCalls()} and {@link #getFrameSkipped()}.
+	 */
+	public static void endFrame()
+	{
+		lastFrameCalls = calls;
+		lastFrameSkipped = skipped;
+
+		calls = 0;
+		skipped = 0;
+	}
+
+	/**
+	 * How many state changes were asked for during the last frame.
+	 */
+	public static int getFrameCalls()
+	{
+		return lastFrameCalls;
+	}
+
+	/**
+	 * How many of the last frame's state changes were redundant, and so
+	 * never reached OpenGL.
+	 */
+	public static int getFrameSkipped()
+	{
+		return lastFrameSkipped;
+	}
+
+	private static void ensureVertexArray(int id)
+	{
+		if (id < elementBuffers.length)
+			return;
+
+		int size = Math.max(id+1, elementBuffers.length*2);
+		int old = elementBuffers.length;
+
+		elementBuffers = Arrays.copyOf(elementBuffers, size);
+		enabledAttribs = Arrays.copyOf(enabledAttribs, size);
+		knownAttribs = Arrays.copyOf(knownAttribs, size);
+
+		Arrays.fill(elementBuffers, old, size, UNKNOWN);
+	}
+}
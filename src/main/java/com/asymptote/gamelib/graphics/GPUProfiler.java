@@ -0,0 +1,236 @@
+package com.asymptote.gamelib.graphics;
+
+import static org.lwjgl.opengl.GL11.GL_FALSE;
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT;
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT_AVAILABLE;
+import static org.lwjgl.opengl.GL15.glBeginQuery;
+import static org.lwjgl.opengl.GL15.glDeleteQueries;
+import static org.lwjgl.opengl.GL15.glEndQuery;
+import static org.lwjgl.opengl.GL15.glGenQueries;
+import static org.lwjgl.opengl.GL15.glGetQueryObjecti;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import com.asymptote.gamelib.core.Clock;
+import com.asymptote.gamelib.core.Histogram;
+
+/**
+ * Measures how long named render passes take on the GPU, using
+ * GL_TIME_ELAPSED queries. Each pass keeps a ring of queries, one per frame
+ * in flight, and a query is only read back when the ring comes round to it
+ * again, a few frames later, so the CPU never waits on the GPU. A result
+ * that still isn't ready by then is dropped rather than waited for.
+ *
+ * Passes can't nest, since only one GL_TIME_ELAPSED query can be active at
+ * a time. Each pass should be timed at most once a frame.
+ */
+public class GPUProfiler
+{
+	// Frames a query gets to finish before it's read back.
+	private static final int FRAMES = 4;
+
+	private static boolean enabled;
+	private static int frame;
+	private static Pass active;
+	private static List<Pass> passes = new ArrayList<Pass>();
+
+	/**
+	 * The handle for the named pass, created the first time it's asked for.
+	 * Look handles up once and keep them.
+	 */
+	public static Pass pass(String name)
+	{
+		for (Pass p : passes)
+			if (p.name.equals(name))
+				return p;
+
+		Pass p = new Pass(name);
+		passes.add(p);
+
+		return p;
+	}
+
+	/**
+	 * Turns profiling on or off. Needs a current context that supports timer
+	 * queries (OpenGL 3.3 or ARB_timer_query, which Mesa's software
+	 * rasterizer has too); without one it stays off.
+	 */
+	public static void setEnabled(boolean enable)
+	{
+		if (enable)
+		{
+			GLCapabilities caps = GL.getCapabilities();
+
+			if (!caps.OpenGL33 && !caps.GL_ARB_timer_query)
+			{
+				System.err.println("Timer queries aren't supported, GPU profiling stays off.");
+				return;
+			}
+		}
+
+		enabled = enable;
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Moves on to the next frame's queries, collecting the results of the
+	 * ones last used {@link #FRAMES} frames ago.
+	 */
+	public static void endFrame()
+	{
+		if (!enabled)
+			return;
+
+		if (active != null)
+		{
+			System.err.println("GPU pass " + active.name + " was never ended.");
+			active.end();
+		}
+
+		frame = (frame + 1) % FRAMES;
+
+		for (int i = 0; i < passes.size(); i++)
+			passes.get(i).collect(frame);
+	}
+
+	/**
+	 * A table of GPU p50/p99/max per pass, in milliseconds, since the last
+	 * reset.
+	 */
+	public static String report()
+	{
+		StringBuilder out = new StringBuilder();
+
+		out.append(String.format("%-16s %8s %8s %8s %8s %8s%n", "gpu pass", "count", "p50 ms", "p99 ms", "max ms", "dropped"));
+
+		for (Pass p : passes)
+		{
+			Histogram h = p.times;
+			out.append(String.format("%-16s %8d %8.3f %8.3f %8.3f %8d%n", p.name, h.getCount(),
+					h.percentile(.5)/Clock.NINM, h.percentile(.99)/Clock.NINM, h.getMax()/Clock.NINM, p.dropped));
+		}
+
+		return out.toString();
+	}
+
+	public static void reset()
+	{
+		for (Pass p : passes)
+		{
+			p.times.reset();
+			p.dropped = 0;
+		}
+	}
+
+	public static void free()
+	{
+		for (Pass p : passes)
+			p.free();
+
+		active = null;
+	}
+
+	public static class Pass
+	{
+		private final String name;
+
+		private int[] queries = new int[FRAMES];
+		private boolean[] pending = new boolean[FRAMES];
+
+		private Histogram times = new Histogram();
+		private int dropped;
+
+		private Pass(String name)
+		{
+			this.name = name;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void begin()
+		{
+			if (!enabled)
+				return;
+
+			if (active != null)
+			{
+				System.err.println("GPU pass " + name + " started inside " + active.name + ", not timed.");
+				return;
+			}
+
+			if (queries[frame] == 0)
+				queries[frame] = glGenQueries();
+
+			glBeginQuery(GL_TIME_ELAPSED, queries[frame]);
+			pending[frame] = true;
+			active = this;
+		}
+
+		public void end()
+		{
+			if (active != this)
+				return;
+
+			glEndQuery(GL_TIME_ELAPSED);
+			active = null;
+		}
+
+		/**
+		 * GPU time of the pass, in nanoseconds, for every frame read back
+		 * since the last reset.
+		 */
+		public Histogram getTimes()
+		{
+			return times;
+		}
+
+		/**
+		 * How many results weren't ready in time and were thrown away.
+		 */
+		public int getDropped()
+		{
+			return dropped;
+		}
+
+		private void collect(int slot)
+		{
+			if (!pending[slot])
+				return;
+
+			pending[slot] = false;
+
+			if (glGetQueryObjecti(queries[slot], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE)
+			{
+				dropped++;
+				return;
+			}
+
+			times.record(glGetQueryObjecti64(queries[slot], GL_QUERY_RESULT));
+		}
+
+		private void free()
+		{
+			for (int i = 0; i < FRAMES; i++)
+			{
+				if (queries[i] != 0)
+					glDeleteQueries(queries[i]);
+
+				queries[i] = 0;
+				pending[i] = false;
+			}
+		}
+	}
+}
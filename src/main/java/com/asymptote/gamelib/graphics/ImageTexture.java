@@ -99,8 +99,8 @@ public class ImageTexture extends Texture
 		int format = components == 3 ? GL_RGB : GL_RGBA;
 
 		// activate texture
-		glActiveTexture(GL_TEXTURE0);
-		glBindTexture(GL_TEXTURE_2D, texID);
+		GLState.activeTexture(GL_TEXTURE0);
+		GLState.bindTexture(GL_TEXTURE_2D, texID);
 		
 		// define how components are laid out
 		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
@@ -118,8 +118,8 @@ public class ImageTexture extends Texture
 		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
 		
 		// deactivate texture
-		glActiveTexture(0);
-		glBindTexture(GL_TEXTURE_2D, 0);
+		GLState.activeTexture(0);
+		GLState.bindTexture(GL_TEXTURE_2D, 0);
 	}
 
 	@Override
@@ -43,85 +43,155 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 	private int vertStorageMode;
 	private int indexStorageMode;
 	
+	// CPU side copy of the interleaved vertex data, so that positions, colors
+	// and texture coordinates can be rewritten and sent in a single upload.
+	// Always in the full layout; it's packed into the format on upload.
+	private float[] vertData;
+	private ByteBuffer uploadBuffer;
+	private int bufferSize;
+	private VertexFormat format;
+	private boolean mapped;
+	
 	private boolean isFilled;
 	
+	// Set when the buffers are shared with other instances, which then each
+	// have their own color instead of the one in the vertex data.
+	private SharedGeometry shared;
+	private float[] instanceColor;
+	
 	public Renderable()
 	{
+		this(null, VertexFormat.FULL);
+	}
+	
+	/**
+	 * Stores the vertices in the given format on the GPU.
+	 */
+	protected Renderable(VertexFormat format)
+	{
+		this(null, format);
+	}
+	
+	/**
+	 * Draws from the given shared buffers, if not null, instead of creating
+	 * buffers of its own, in which case they bring their own format.
+	 */
+	protected Renderable(SharedGeometry geometry, VertexFormat format)
+	{
+		isFilled = true;
+		
+		if (geometry != null)
+		{
+			shared = geometry;
+			
+			this.format = geometry.format;
+			
+			vaoID = geometry.vaoID;
+			vboID = geometry.vboID;
+			vboIndexID = geometry.vboIndexID;
+			numVerts = geometry.numVerts;
+			numIndices = geometry.numIndices;
+			indexStorageMode = geometry.indexStorageMode;
+			bufferSize = geometry.bufferSize;
+			vertStorageMode = GL15.GL_STATIC_DRAW;
+			
+			return;
+		}
+		
+		this.format = format;
+		
 		vaoID = GL30.glGenVertexArrays();
 		vboID = GL15.glGenBuffers();
 		
 		vertStorageMode = GL15.GL_STATIC_DRAW;
 		indexStorageMode = GL11.GL_UNSIGNED_BYTE;
 		
-		isFilled = true;
-		
-		GL30.glBindVertexArray(vaoID);
+		GLState.bindVertexArray(vaoID);
 		
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
 		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, BufferUtils.createFloatBuffer(0), vertStorageMode);
-		GL20.glVertexAttribPointer(Vertex.POS_ATTRIB, Vertex.POS_COUNT, GL11.GL_FLOAT, false, Vertex.STRIDE, Vertex.POS_OFFSET);
-		GL20.glVertexAttribPointer(Vertex.COL_ATTRIB, Vertex.COL_COUNT, GL11.GL_FLOAT, false, Vertex.STRIDE, Vertex.COL_OFFSET);
-		GL20.glVertexAttribPointer(Vertex.TEX_ATTRIB, Vertex.TEX_COUNT, GL11.GL_FLOAT, false, Vertex.STRIDE, Vertex.TEX_OFFSET);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);		
+		format.point();
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);		
 		
-		GL30.glBindVertexArray(0);
+		GLState.bindVertexArray(0);
 	}
 
 	public void free()
 	{
-		GL30.glBindVertexArray(vaoID);
+		// Other instances may still be drawing from shared buffers.
+		if (shared != null && !shared.release())
+			return;
 		
-		GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-		GL15.glDeleteBuffers(vboID);
+		GLState.bindVertexArray(vaoID);
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GL15.glDeleteBuffers(vboIndexID);
+		GLState.disableVertexAttribArray(Vertex.POS_ATTRIB);
+		GLState.disableVertexAttribArray(Vertex.COL_ATTRIB);
+		GLState.disableVertexAttribArray(Vertex.TEX_ATTRIB);
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		GLState.deleteBuffer(vboID);
 		
-		GL30.glBindVertexArray(0);
-		GL30.glDeleteVertexArrays(vaoID);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLState.deleteBuffer(vboIndexID);
+		
+		GLState.bindVertexArray(0);
+		GLState.deleteVertexArray(vaoID);
 	}
 	
 	protected void loadInterleaved(Vertex[] verts)
 	{
 		numVerts = verts.length;
 		
-		FloatBuffer vertBuffer = BufferUtils.createFloatBuffer(verts.length*Vertex.NUM_ELEMENTS);
+		vertData = new float[verts.length*Vertex.NUM_ELEMENTS];
 
-		for (Vertex vert : verts)
-			vertBuffer.put(vert.getInterleaved());
-		
-		vertBuffer.flip();
+		for (int i = 0; i < verts.length; i++)
+			System.arraycopy(verts[i].getInterleaved(), 0, vertData, i*Vertex.NUM_ELEMENTS, Vertex.NUM_ELEMENTS);
 		
-		replaceVertexBuffer(vertBuffer);
+		uploadVertData();
 	}
 	
+	/**
+	 * Loads fully interleaved vertex data. The array is kept (not copied) as
+	 * this mesh's vertex data, until {@link #discardVertexData()} is called.
+	 */
 	protected void loadInterleaved(float[] verts)
 	{
 		numVerts = verts.length/Vertex.NUM_ELEMENTS;
 		
-		FloatBuffer vertBuffer = BufferUtils.createFloatBuffer(verts.length);
-		vertBuffer.put(verts);
-		vertBuffer.flip();
+		vertData = verts;
 		
-		replaceVertexBuffer(vertBuffer);
+		uploadVertData();
 	}
 	
 	protected void loadVerts(float[] verts)
+	{
+		loadVerts(verts, null);
+	}
+	
+	/**
+	 * Loads the positions with every vertex given the one RGBA color (if not
+	 * null), uploading them together once.
+	 */
+	protected void loadVerts(float[] verts, float[] color)
 	{
 		int oldNumVerts = numVerts;
 		numVerts = verts.length/Vertex.POS_COUNT;
 		
-		if (numVerts != oldNumVerts)
+		if (numVerts != oldNumVerts || getVertData() == null)
 		{
 			//System.out.println("New number of vertices doesn't match old number. Need to rebuild buffer.");
 			
-			FloatBuffer vertBuffer = BufferUtils.createFloatBuffer(numVerts*Vertex.NUM_ELEMENTS);
-			replaceVertexBuffer(vertBuffer);
+			vertData = new float[numVerts*Vertex.NUM_ELEMENTS];
 			
-			setColor(DEFAULT_COLOR[0], DEFAULT_COLOR[1], DEFAULT_COLOR[2], DEFAULT_COLOR[3]);
+			if (color == null)
+				color = DEFAULT_COLOR;
+		}
+		
+		if (color != null)
+		{
+			if (color.length != Vertex.COL_COUNT)
+				throw new RuntimeException("Expected a single RGBA color.");
+			
+			fillInterleavedData(color, 0, Vertex.COL_COUNT, Vertex.COL_OFFSET);
 		}
 		
 		//System.out.println("numVerts: " + numVerts);
@@ -139,15 +209,15 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 		
 		if (vboIndexID != 0)
 		{
-			GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-			GL15.glDeleteBuffers(vboIndexID);
+			GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+			GLState.deleteBuffer(vboIndexID);
 		}
 			
 		vboIndexID = GL15.glGenBuffers();
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
 		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, vertStorageMode);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
 		
 		indexStorageMode = GL11.GL_UNSIGNED_BYTE;
 	}
@@ -162,15 +232,15 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 		
 		if (vboIndexID != 0)
 		{
-			GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-			GL15.glDeleteBuffers(vboIndexID);
+			GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+			GLState.deleteBuffer(vboIndexID);
 		}
 			
 		vboIndexID = GL15.glGenBuffers();
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
 		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, vertStorageMode);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
 		
 		indexStorageMode = GL11.GL_UNSIGNED_SHORT;
 	}
@@ -185,15 +255,15 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 		
 		if (vboIndexID != 0)
 		{
-			GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-			GL15.glDeleteBuffers(vboIndexID);
+			GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+			GLState.deleteBuffer(vboIndexID);
 		}
 			
 		vboIndexID = GL15.glGenBuffers();
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
 		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, vertStorageMode);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
 		
 		indexStorageMode = GL11.GL_UNSIGNED_INT;
 	}
@@ -221,6 +291,72 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 		return this;
 	}
 	
+	/**
+	 * For meshes that are rewritten often. Vertex data is written straight
+	 * into a mapped, invalidated buffer instead of going through
+	 * glBufferData, which lets the driver hand back fresh storage instead of
+	 * waiting on draws that still use the old contents. Implies streaming
+	 * storage.
+	 */
+	public Renderable setMapped(boolean mapped)
+	{
+		this.mapped = mapped;
+		
+		if (mapped)
+			setStatic(false);
+		
+		return this;
+	}
+	
+	public boolean isMapped()
+	{
+		return mapped;
+	}
+	
+	/**
+	 * Stores the vertices in another format from now on, converting any
+	 * already uploaded.
+	 */
+	public Renderable setVertexFormat(VertexFormat format)
+	{
+		if (format.equals(this.format))
+			return this;
+		
+		if (shared != null)
+			throw new RuntimeException("The format of a mesh with shared buffers can't be changed.");
+		
+		// Fetched in the old format, if it has to be read back.
+		float[] data = getVertData();
+		
+		this.format = format;
+		
+		GLState.bindVertexArray(vaoID);
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+		format.point();
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		
+		if (data != null)
+			uploadVertData();
+		
+		return this;
+	}
+	
+	public VertexFormat getVertexFormat()
+	{
+		return format;
+	}
+	
+	/**
+	 * Drops the CPU side copy of the vertex data, for big static meshes that
+	 * won't be changed again. If they are, the data is read back from the
+	 * GPU first.
+	 */
+	public void discardVertexData()
+	{
+		vertData = null;
+		uploadBuffer = null;
+	}
+	
 	public Renderable setFillMode(boolean isFilled)
 	{
 		this.isFilled = isFilled;
@@ -252,17 +388,36 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 	
 	public Renderable setColor(float r, float g, float b, float a)
 	{
-		float[] color = new float[numVerts*Vertex.COL_COUNT];
+		if (shared != null)
+		{
+			if (instanceColor == null)
+				instanceColor = new float[4];
+			
+			instanceColor[0] = r;
+			instanceColor[1] = g;
+			instanceColor[2] = b;
+			instanceColor[3] = a;
+			return this;
+		}
+		
+		if (getVertData() == null)
+			return this;
+		
+		float[] data = vertData;
 		
-		for (int i = 0; i < color.length; i += 4)
+		for (int i = 0; i < numVerts; i++)
 		{
-			color[i] = r;
-			color[i+1] = g;
-			color[i+2] = b;
-			color[i+3] = a;
-		}	
+			int c = i*Vertex.NUM_ELEMENTS + Vertex.COL_OFFSET/Vertex.FLOAT_SIZE;
+			
+			data[c] = r;
+			data[c+1] = g;
+			data[c+2] = b;
+			data[c+3] = a;
+		}
+		
+		uploadVertData();
 		
-		return setColor(color);		
+		return this;
 	}
 	
 	public Renderable setColor(float[] color)
@@ -277,6 +432,8 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 		
 		if (color.length == Vertex.COL_COUNT)
 			setColor(color[0], color[1], color[2], color[3]);
+		else if (shared != null)
+			throw new RuntimeException("A mesh with shared buffers can only be given a single color.");
 		else if (color.length/Vertex.COL_COUNT != numVerts)
 			throw new RuntimeException("Number of specified colors does not match number of vertices.");
 		else
@@ -322,90 +479,183 @@ public abstract class Renderable extends Transformable implements GameObject, IG
 	
 	public void render()
 	{
-		Camera c = Camera.getGlobal();
+		applyModelMatrix();
 		
-		c.setModelMatrix(getModelMatrix());
-		c.use();
-		c.resetModelMatrix();
-				
-		GL30.glBindVertexArray(vaoID);
-		GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.TEX_ATTRIB);
+		GLState.bindVertexArray(vaoID);
+		enableAttributes();
 		
 		if (isFilled)
-			GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
+			GLState.polygonMode(GL11.GL_FILL);
 		else
-			GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_LINE);
+			GLState.polygonMode(GL11.GL_LINE);
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboIndexID);
 		GL11.glDrawElements(GL11.GL_TRIANGLES, numIndices, indexStorageMode, 0);		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+	
+	/**
+	 * Hands this object's model matrix to the program in use, and makes sure
+	 * the camera block is current. Call before drawing.
+	 */
+	protected void applyModelMatrix()
+	{
+		CameraBlock.update(Camera.getGlobal());
 		
-		GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-		GL30.glBindVertexArray(0);
+		ShaderProgram prog = ShaderProgram.getGlobal();
+		if (prog != null)
+			prog.setModelMatrix(getModelBuffer());
 	}
 	
-	public FloatBuffer getModelBuffer()
+	/**
+	 * Enables the attributes this mesh's format stores, and disables the
+	 * rest, then applies its color. Call with the vertex array bound.
+	 */
+	protected void enableAttributes()
+	{
+		format.enable();
+		applyColor();
+	}
+	
+	/**
+	 * Colors the next draw from the vertex data, or with this instance's own
+	 * color if it shares its buffers (or its format has no colors). Call with
+	 * the vertex array bound, instead of enabling the color attribute
+	 * directly.
+	 */
+	protected void applyColor()
 	{
-		if (transformChanged())
-		{	
-			modelBuffer.clear();
-			getModelMatrix().get(modelBuffer);
-			modelBuffer.flip();
-			modelBuffer.limit(16);
+		if (instanceColor != null || !format.has(Vertex.COL_ATTRIB))
+		{
+			float[] c = (instanceColor != null) ? instanceColor : DEFAULT_COLOR;
+			
+			GLState.disableVertexAttribArray(Vertex.COL_ATTRIB);
+			GL20.glVertexAttrib4f(Vertex.COL_ATTRIB, c[0], c[1], c[2], c[3]);
 		}
-		
-		return modelBuffer;
+		else
+			GLState.enableVertexAttribArray(Vertex.COL_ATTRIB);
 	}
 	
-	private void replaceVertexBuffer(FloatBuffer buffer)
+	/**
+	 * Hands this mesh's buffers over to be shared, for a cache to give to
+	 * other instances of the same shape. From then on the vertex data can't
+	 * be changed, and setting a color only colors this instance.
+	 */
+	public SharedGeometry share()
 	{
-		//System.out.println("vaoID: " + vaoID + "   vboID: " + vboID);
-		
-		GL30.glBindVertexArray(vaoID);
+		if (shared == null)
+		{
+			shared = new SharedGeometry(vaoID, vboID, vboIndexID, numVerts, numIndices, indexStorageMode, bufferSize, format);
+			
+			// Never rewritten from here on.
+			discardVertexData();
+		}
 		
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
-		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, vertStorageMode);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);		
+		return shared;
+	}
+	
+	public boolean isShared()
+	{
+		return shared != null;
+	}
+	
+	public FloatBuffer getModelBuffer()
+	{
+		// Always copied, since the model matrix may already have been
+		// recalculated (clearing transformChanged) by something else.
+		modelBuffer.clear();
+		getModelMatrix().get(modelBuffer);
+		modelBuffer.limit(16);
 		
-		GL30.glBindVertexArray(0);
+		return modelBuffer;
+	}
+	
+	private float[] getVertData()
+	{
+		if (vertData == null && bufferSize > 0)
+		{
+			// Discarded earlier, so fetch it back from the GPU.
+			ByteBuffer packed = BufferUtils.createByteBuffer(bufferSize);
+			
+			GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+			GL15.glGetBufferSubData(GL15.GL_ARRAY_BUFFER, 0, packed);
+			GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+			
+			vertData = format.unpack(packed, bufferSize/format.getStride());
+		}
 		
-		int error = GL11.glGetError();
-		if (error != GL11.GL_NO_ERROR)
-			System.out.println("Error while replacing vertex buffers: " + error);
+		return vertData;
 	}
 	
-	private void placeInterleavedData(float[] dataArray, int datumSize, int offset)
+	/**
+	 * Sends the whole interleaved vertex array to the GPU in one call, packed
+	 * into the mesh's format.
+	 */
+	private void uploadVertData()
 	{
-		float[] data = new float[datumSize];
-		FloatBuffer dataBuffer = BufferUtils.createFloatBuffer(data.length);
+		int count = vertData.length/Vertex.NUM_ELEMENTS;
+		int size = count*format.getStride();
 		
-		GL30.glBindVertexArray(vaoID);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
-
-		for (int i = 0; i < dataArray.length/datumSize; i++)
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+		
+		if (mapped && size > 0)
 		{
-			for (int j = 0; j < datumSize; j++)
-				data[j] = dataArray[i*datumSize + j];
+			if (size != bufferSize)
+				GL15.glBufferData(GL15.GL_ARRAY_BUFFER, size, vertStorageMode);
 			
-			dataBuffer.rewind();
-			dataBuffer.put(data);
-			dataBuffer.flip();
+			ByteBuffer map = GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, 0, size,
+					GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_BUFFER_BIT);
 			
-			GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offset + i*Vertex.STRIDE, dataBuffer);
+			if (map != null)
+			{
+				format.pack(vertData, count, map);
+				GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+			}
+		}
+		else
+		{
+			if (uploadBuffer == null || uploadBuffer.capacity() < size)
+				uploadBuffer = BufferUtils.createByteBuffer(size);
 			
-			//System.out.println("Iteration: " + i);
+			uploadBuffer.clear();
+			format.pack(vertData, count, uploadBuffer);
+			uploadBuffer.flip();
 			
-			int error = GL11.glGetError();
-			if (error != GL11.GL_NO_ERROR)
-				System.out.println("\nError while substituting vertex buffers: " + error);
+			if (size == bufferSize)
+				GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, uploadBuffer);
+			else
+				GL15.glBufferData(GL15.GL_ARRAY_BUFFER, uploadBuffer, vertStorageMode);
 		}
 		
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-		GL30.glBindVertexArray(0);
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		
+		bufferSize = size;
+	}
+	
+	/**
+	 * Copies one attribute (datumSize floats per vertex) into the interleaved
+	 * data, then uploads it.
+	 */
+	private void placeInterleavedData(float[] dataArray, int datumSize, int offset)
+	{
+		float[] data = getVertData();
+		int start = offset/Vertex.FLOAT_SIZE;
+		int count = Math.min(dataArray.length/datumSize, numVerts);
+		
+		for (int i = 0; i < count; i++)
+			System.arraycopy(dataArray, i*datumSize, data, i*Vertex.NUM_ELEMENTS + start, datumSize);
+		
+		uploadVertData();
+	}
+	
+	/**
+	 * Sets one attribute to the same value on every vertex, without uploading.
+	 */
+	private void fillInterleavedData(float[] datum, int datumOffset, int datumSize, int offset)
+	{
+		int start = offset/Vertex.FLOAT_SIZE;
+		
+		for (int i = 0; i < numVerts; i++)
+			System.arraycopy(datum, datumOffset, vertData, i*Vertex.NUM_ELEMENTS + start, datumSize);
 	}
 
 	public Renderable setScale(float x, float y, float z)
@@ -5,20 +5,24 @@ import static org.lwjgl.opengl.GL20.GL_VALIDATE_STATUS;
 import static org.lwjgl.opengl.GL20.glAttachShader;
 import static org.lwjgl.opengl.GL20.glBindAttribLocation;
 import static org.lwjgl.opengl.GL20.glCreateProgram;
-import static org.lwjgl.opengl.GL20.glDeleteProgram;
 import static org.lwjgl.opengl.GL20.glDetachShader;
+import static org.lwjgl.opengl.GL20.GL_ACTIVE_UNIFORMS;
+import static org.lwjgl.opengl.GL20.glGetActiveUniform;
 import static org.lwjgl.opengl.GL20.glGetProgrami;
 import static org.lwjgl.opengl.GL20.glGetUniformLocation;
 import static org.lwjgl.opengl.GL20.glIsShader;
 import static org.lwjgl.opengl.GL20.glLinkProgram;
-import static org.lwjgl.opengl.GL20.glUniform1f;
-import static org.lwjgl.opengl.GL20.glUniform1i;
-import static org.lwjgl.opengl.GL20.glUniformMatrix4fv;
-import static org.lwjgl.opengl.GL20.glUseProgram;
 import static org.lwjgl.opengl.GL20.glValidateProgram;
+import static org.lwjgl.opengl.GL31.GL_INVALID_INDEX;
+import static org.lwjgl.opengl.GL31.glGetUniformBlockIndex;
+import static org.lwjgl.opengl.GL31.glUniformBlockBinding;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 
@@ -32,34 +36,118 @@ public class ShaderProgram implements IGLObject
 	private Shader frag;
 	
 	private int progID;	
-	private int mvpMatrix;
+	private Uniform modelMatrix;
+	
+	// Every active uniform, found once at link time. Names asked for that
+	// aren't in here get a do-nothing handle, added so they're only reported once.
+	private Map<String, Uniform> uniforms = new HashMap<String, Uniform>();
 	
 	public ShaderProgram(String vsFileName, String fsFileName)
+	{
+		this(vsFileName, fsFileName, null);
+	}
+	
+	/**
+	 * @param attribs	inputs of the vertex shader beyond the usual position,
+	 * 					color and texture coordinates, and the attribute
+	 * 					location each should be bound to.
+	 */
+	public ShaderProgram(String vsFileName, String fsFileName, Map<String, Integer> attribs)
 	{
 		vert = new Shader(vsFileName);
 		frag = new Shader(fsFileName);
 		
-		progID = buildProgram(vert.getID(), frag.getID());
+		progID = buildProgram(vert.getID(), frag.getID(), attribs);
 		
 		if (progID > 0)
-			mvpMatrix = glGetUniformLocation(progID, "mvpMatrix");
-
+		{
+			findUniforms();
+			bindCameraBlock();
+		}
+		
+		modelMatrix = getUniform("modelMatrix", false);
+	}
+	
+	/**
+	 * Points the program's Camera block, if it has one, at the buffer every
+	 * program shares.
+	 */
+	private void bindCameraBlock()
+	{
+		int block = glGetUniformBlockIndex(progID, CameraBlock.NAME);
+		
+		if (block != GL_INVALID_INDEX)
+			glUniformBlockBinding(progID, block, CameraBlock.BINDING);
+	}
+	
+	private void findUniforms()
+	{
+		IntBuffer size = BufferUtils.createIntBuffer(1);
+		IntBuffer type = BufferUtils.createIntBuffer(1);
+		
+		int count = glGetProgrami(progID, GL_ACTIVE_UNIFORMS);
+		
+		for (int i = 0; i < count; i++)
+		{
+			String name = glGetActiveUniform(progID, i, size, type);
+			
+			// Arrays are reported as name[0], but set by their plain name.
+			if (name.endsWith("[0]"))
+				name = name.substring(0, name.length()-3);
+			
+			// Uniforms in blocks have no location of their own.
+			int location = glGetUniformLocation(progID, name);
+			if (location != -1)
+				uniforms.put(name, new Uniform(name, location, type.get(0)));
+		}
+	}
+	
+	/**
+	 * The handle for the named uniform. Look handles up once and keep them,
+	 * rather than setting uniforms by name every frame.
+	 */
+	public Uniform getUniform(String name)
+	{
+		return getUniform(name, true);
+	}
+	
+	private Uniform getUniform(String name, boolean report)
+	{
+		Uniform uniform = uniforms.get(name);
+		
+		if (uniform == null)
+		{
+			if (report && progID > 0)
+				System.err.println("Uniform " + name + " could not be found.");
+			
+			uniform = new Uniform(name, -1, 0);
+			uniforms.put(name, uniform);
+		}
+		
+		return uniform;
 	}
 	
 	public void disable()
 	{
-		glUseProgram(0);
+		GLState.useProgram(0);
 		global = null;
 	}
 	
 	public void use()
 	{
-		glUseProgram(progID);
+		GLState.useProgram(progID);
 		global = this;
-			
-		Camera camera = Camera.getGlobal();
-		if (camera != null)
-			glUniformMatrix4fv(mvpMatrix, false, camera.getMVP());
+		
+		CameraBlock.update(Camera.getGlobal());
+	}
+	
+	/**
+	 * Sets the model matrix for the next draw. The view and projection come
+	 * from the shared camera block, so this is all that changes per object.
+	 */
+	public void setModelMatrix(FloatBuffer value)
+	{
+		modelMatrix.setMatrix(value);
 	}
 	
 	public static ShaderProgram getGlobal()
@@ -69,41 +157,17 @@ public class ShaderProgram implements IGLObject
 	
 	public void setValue(String name, int value)
 	{
-		if (progID < 0)
-			return;
-		
-		int valueID = glGetUniformLocation(progID, name);
-		
-		if (valueID != -1)
-			glUniform1i(valueID, value);
-		else
-			System.err.println("Uniform " + name + " could not be found.");
+		getUniform(name).set(value);
 	}
 	
 	public void setValue(String name, float value)
 	{
-		if (progID < 0)
-			return;
-		
-		int valueID = glGetUniformLocation(progID, name);
-		
-		if (valueID != -1)
-			glUniform1f(valueID, value);
-		else
-			System.err.println("Uniform " + name + " could not be found.");
+		getUniform(name).set(value);
 	}
 	
 	public void setMatrix(String name, FloatBuffer value)
 	{
-		if (progID < 0)
-			return;
-		
-		int valueID = glGetUniformLocation(progID, name);
-		
-		if (valueID != -1)
-			glUniformMatrix4fv(valueID, false, value);
-		else
-			System.err.println("Uniform " + name + " could not be found.");
+		getUniform(name).setMatrix(value);
 	}	
 
 	@Override
@@ -111,17 +175,17 @@ public class ShaderProgram implements IGLObject
 	{
 		if (progID != -1)
 		{
-			glUseProgram(0);
+			GLState.useProgram(0);
 			glDetachShader(progID, vert.getID());
 			glDetachShader(progID, frag.getID());
 			
 			vert.free();
 			frag.free();
-			glDeleteProgram(progID);
+			GLState.deleteProgram(progID);
 		}
 	}
 	
-	private int buildProgram(int vsID, int fsID)
+	private int buildProgram(int vsID, int fsID, Map<String, Integer> attribs)
 	{
 		//System.err.println("OpenGL version is " + GL11.glGetString(GL11.GL_VERSION));
 		
@@ -139,6 +203,10 @@ public class ShaderProgram implements IGLObject
 		glBindAttribLocation(pid, Vertex.COL_ATTRIB, "in_Color");
 		glBindAttribLocation(pid, Vertex.TEX_ATTRIB, "in_TexCoord");
 		
+		if (attribs != null)
+			for (Map.Entry<String, Integer> a : attribs.entrySet())
+				glBindAttribLocation(pid, a.getValue(), a.getKey());
+		
 		glLinkProgram(pid);		
 		
 		int error = glGetProgrami(pid, GL_LINK_STATUS);
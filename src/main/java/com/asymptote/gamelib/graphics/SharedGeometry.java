@@ -0,0 +1,63 @@
+package com.asymptote.gamelib.graphics;
+
+/**
+ * The GPU side of a mesh (its vertex array, vertex buffer and index buffer),
+ * counted so several {@link Renderable}s can draw from it. The buffers are
+ * only deleted when the last of them is freed.
+ */
+public class SharedGeometry
+{
+	final int vaoID;
+	final int vboID;
+	final int vboIndexID;
+
+	final int numVerts;
+	final int numIndices;
+	final int indexStorageMode;
+	final int bufferSize;
+	final VertexFormat format;
+
+	private int references = 1;
+
+	SharedGeometry(int vaoID, int vboID, int vboIndexID, int numVerts, int numIndices, int indexStorageMode, int bufferSize, VertexFormat format)
+	{
+		this.vaoID = vaoID;
+		this.vboID = vboID;
+		this.vboIndexID = vboIndexID;
+		this.numVerts = numVerts;
+		this.numIndices = numIndices;
+		this.indexStorageMode = indexStorageMode;
+		this.bufferSize = bufferSize;
+		this.format = format;
+	}
+
+	/**
+	 * Adds a user, who has to {@link Renderable#free()} it (and so release
+	 * it) when done.
+	 */
+	public SharedGeometry acquire()
+	{
+		references++;
+
+		return this;
+	}
+
+	/**
+	 * Drops a user. Returns true if that was the last one, and the buffers
+	 * should go.
+	 */
+	boolean release()
+	{
+		return --references == 0;
+	}
+
+	public int getReferences()
+	{
+		return references;
+	}
+
+	public boolean isReleased()
+	{
+		return references <= 0;
+	}
+}
@@ -73,8 +73,8 @@ public abstract class Texture implements IGLObject
 		
 		texLayer = TEX_LAYER;
 		
-		glActiveTexture(texLayer);
-		glBindTexture(GL_TEXTURE_2D, texID);
+		GLState.activeTexture(texLayer);
+		GLState.bindTexture(GL_TEXTURE_2D, texID);
 		printGlError("Binding texture " + texID + " on layer " + layer());
 
 		TEX_LAYER++;
@@ -98,25 +98,25 @@ public abstract class Texture implements IGLObject
 				if (t.layer() > texLayer)
 					tx.add(t);
 			
-			glActiveTexture(texLayer);
-			glBindTexture(GL_TEXTURE_2D, 0);
+			GLState.activeTexture(texLayer);
+			GLState.bindTexture(GL_TEXTURE_2D, 0);
 			printGlError("Unbinding texture " + texID);
 			
 			for (Texture t : tx)
 			{
-				glActiveTexture(t.layer());
-				glBindTexture(GL_TEXTURE_2D, 0);
+				GLState.activeTexture(t.layer());
+				GLState.bindTexture(GL_TEXTURE_2D, 0);
 				printGlError("Unbinding texture " + t.texID() + " from layer " + t.layer());
 				
-				glActiveTexture(t.layer() - 1);
-				glBindTexture(GL_TEXTURE_2D, t.texID());
+				GLState.activeTexture(t.layer() - 1);
+				GLState.bindTexture(GL_TEXTURE_2D, t.texID());
 				printGlError("Rebinding texture " + t.texID() + " onto layer " + t.layer());
 			}
 		}
 		
 		TEX_LAYER--;
-		glActiveTexture(TEX_LAYER);
-		glBindTexture(GL_TEXTURE_2D, 0);
+		GLState.activeTexture(TEX_LAYER);
+		GLState.bindTexture(GL_TEXTURE_2D, 0);
 		printGlError("Unbinding texture from layer " + (TEX_LAYER-GL_TEXTURE0));
 		
 		texLayer = -1;
@@ -0,0 +1,141 @@
+package com.asymptote.gamelib.graphics;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_INT;
+import static org.lwjgl.opengl.GL20.GL_BOOL;
+import static org.lwjgl.opengl.GL20.GL_FLOAT_MAT4;
+import static org.lwjgl.opengl.GL20.GL_SAMPLER_2D;
+import static org.lwjgl.opengl.GL20.glUniform1f;
+import static org.lwjgl.opengl.GL20.glUniform1i;
+import static org.lwjgl.opengl.GL20.glUniformMatrix4fv;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A handle to one uniform of a linked {@link ShaderProgram}, looked up once
+ * when the program is built. Remembers the last value uploaded, and skips
+ * the upload when it's set to the same value again. Like glUniform itself,
+ * setting a value only works while its program is in use.
+ *
+ * A handle for a uniform the program doesn't have (or that the compiler
+ * optimized away) is still returned, and quietly ignores everything set on it.
+ */
+public class Uniform
+{
+	private final String name;
+	private final int location;
+	private final int type;
+	
+	private boolean uploaded;
+	private int intValue;		// float values are kept as their raw bits
+	private float[] matValue;
+	
+	Uniform(String name, int location, int type)
+	{
+		this.name = name;
+		this.location = location;
+		this.type = type;
+	}
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	public int getLocation()
+	{
+		return location;
+	}
+	
+	/**
+	 * The GL type of the uniform (GL_FLOAT, GL_FLOAT_MAT4, ...), or 0 if the
+	 * program doesn't have it.
+	 */
+	public int getType()
+	{
+		return type;
+	}
+	
+	public boolean exists()
+	{
+		return location != -1;
+	}
+	
+	/**
+	 * Sets an int, bool, or sampler uniform.
+	 */
+	public void set(int value)
+	{
+		if (location == -1 || (uploaded && intValue == value))
+			return;
+		
+		if (!uploaded)
+			checkType(type == GL_INT || type == GL_BOOL || type == GL_SAMPLER_2D);
+		
+		glUniform1i(location, value);
+		intValue = value;
+		uploaded = true;
+	}
+	
+	public void set(float value)
+	{
+		int bits = Float.floatToRawIntBits(value);
+		
+		if (location == -1 || (uploaded && intValue == bits))
+			return;
+		
+		if (!uploaded)
+			checkType(type == GL_FLOAT);
+		
+		glUniform1f(location, value);
+		intValue = bits;
+		uploaded = true;
+	}
+	
+	/**
+	 * Sets a mat4 uniform from 16 floats, starting at the buffer's position.
+	 */
+	public void setMatrix(FloatBuffer value)
+	{
+		if (location == -1)
+			return;
+		
+		int p = value.position();
+		
+		if (uploaded)
+		{
+			boolean same = true;
+			for (int i = 0; i < 16 && same; i++)
+				same = Float.floatToRawIntBits(value.get(p+i)) == Float.floatToRawIntBits(matValue[i]);
+			
+			if (same)
+				return;
+		}
+		else
+		{
+			checkType(type == GL_FLOAT_MAT4);
+			matValue = new float[16];
+		}
+		
+		for (int i = 0; i < 16; i++)
+			matValue[i] = value.get(p+i);
+		
+		glUniformMatrix4fv(location, false, value);
+		uploaded = true;
+	}
+	
+	/**
+	 * Forgets the last uploaded value, so the next set always uploads. Needed
+	 * if the uniform was changed without going through this handle.
+	 */
+	public void invalidate()
+	{
+		uploaded = false;
+	}
+	
+	private void checkType(boolean matches)
+	{
+		if (!matches)
+			System.err.println("Uniform " + name + " is not of the type being set (GL type 0x" + Integer.toHexString(type) + ").");
+	}
+}
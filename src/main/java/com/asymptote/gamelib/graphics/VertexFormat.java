@@ -0,0 +1,373 @@
+package com.asymptote.gamelib.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * How a mesh's vertices are laid out in its vertex buffer. A
+ * {@link Renderable} always keeps its vertex data in the full float layout
+ * described by {@link Vertex}, and packs it into its format on upload, so a
+ * format only changes what the GPU stores, not how meshes are built.
+ *
+ * Every format has a position. Attributes a format leaves out are disabled
+ * when drawing, so shaders see their defaults instead (no texture coordinates
+ * or normal, or the mesh's own color if it's shared). Positions stored as
+ * three components get a w of 1.
+ */
+public class VertexFormat
+{
+	// Where each attribute sits in the full layout, in floats. Declared before
+	// the formats below, which need them.
+	private static final int[] CPU_COUNTS = new int[Vertex.NOR_ATTRIB + 1];
+	private static final int[] CPU_OFFSETS = new int[Vertex.NOR_ATTRIB + 1];
+
+	static
+	{
+		CPU_COUNTS[Vertex.POS_ATTRIB] = Vertex.POS_COUNT;
+		CPU_COUNTS[Vertex.COL_ATTRIB] = Vertex.COL_COUNT;
+		CPU_COUNTS[Vertex.TEX_ATTRIB] = Vertex.TEX_COUNT;
+		CPU_COUNTS[Vertex.NOR_ATTRIB] = Vertex.NOR_COUNT;
+
+		CPU_OFFSETS[Vertex.POS_ATTRIB] = Vertex.POS_OFFSET/Vertex.FLOAT_SIZE;
+		CPU_OFFSETS[Vertex.COL_ATTRIB] = Vertex.COL_OFFSET/Vertex.FLOAT_SIZE;
+		CPU_OFFSETS[Vertex.TEX_ATTRIB] = Vertex.TEX_OFFSET/Vertex.FLOAT_SIZE;
+		CPU_OFFSETS[Vertex.NOR_ATTRIB] = Vertex.NOR_OFFSET/Vertex.FLOAT_SIZE;
+	}
+
+	/**
+	 * The layout {@link Vertex} describes: every attribute as floats, 52 bytes
+	 * a vertex.
+	 */
+	public static final VertexFormat FULL = new VertexFormat("full")
+			.with(Vertex.POS_ATTRIB, Vertex.POS_COUNT, GL11.GL_FLOAT)
+			.with(Vertex.COL_ATTRIB, Vertex.COL_COUNT, GL11.GL_FLOAT)
+			.with(Vertex.TEX_ATTRIB, Vertex.TEX_COUNT, GL11.GL_FLOAT)
+			.with(Vertex.NOR_ATTRIB, Vertex.NOR_COUNT, GL11.GL_FLOAT);
+
+	/**
+	 * Position and color only, for untextured meshes: a vec3 position and an
+	 * RGBA8 color, 16 bytes a vertex.
+	 */
+	public static final VertexFormat COLORED = new VertexFormat("colored")
+			.with(Vertex.POS_ATTRIB, 3, GL11.GL_FLOAT)
+			.with(Vertex.COL_ATTRIB, Vertex.COL_COUNT, GL11.GL_UNSIGNED_BYTE);
+
+	/**
+	 * A vec3 position, an RGBA8 color and half float texture coordinates, 20
+	 * bytes a vertex.
+	 */
+	public static final VertexFormat TEXTURED = COLORED.named("textured")
+			.with(Vertex.TEX_ATTRIB, Vertex.TEX_COUNT, GL30.GL_HALF_FLOAT);
+
+	private final String name;
+
+	// Per attribute, indexed by attribute location. A count of 0 means the
+	// attribute isn't stored.
+	private final int[] counts = new int[CPU_COUNTS.length];
+	private final int[] types = new int[CPU_COUNTS.length];
+	private final int[] offsets = new int[CPU_COUNTS.length];
+	private int stride;
+
+	public VertexFormat(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * A copy of this format with the attribute added after the others.
+	 * Supported types are GL_FLOAT, GL_HALF_FLOAT, and GL_UNSIGNED_BYTE
+	 * (normalized, for colors).
+	 */
+	public VertexFormat with(int attrib, int count, int type)
+	{
+		if (attrib < 0 || attrib >= CPU_COUNTS.length)
+			throw new RuntimeException("Unknown vertex attribute: " + attrib);
+		if (count <= 0 || count > CPU_COUNTS[attrib])
+			throw new RuntimeException("Attribute " + attrib + " can't have " + count + " components.");
+		if (counts[attrib] != 0)
+			throw new RuntimeException("Attribute " + attrib + " is already part of " + name + ".");
+
+		VertexFormat format = named(name);
+
+		format.counts[attrib] = count;
+		format.types[attrib] = type;
+		format.offsets[attrib] = stride;
+
+		// Attributes start on 4 byte boundaries.
+		format.stride = stride + align(count*sizeOf(type));
+
+		return format;
+	}
+
+	/**
+	 * A copy of this format under another name.
+	 */
+	public VertexFormat named(String name)
+	{
+		VertexFormat format = new VertexFormat(name);
+
+		System.arraycopy(counts, 0, format.counts, 0, counts.length);
+		System.arraycopy(types, 0, format.types, 0, types.length);
+		System.arraycopy(offsets, 0, format.offsets, 0, offsets.length);
+		format.stride = stride;
+
+		return format;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Bytes per vertex.
+	 */
+	public int getStride()
+	{
+		return stride;
+	}
+
+	public boolean has(int attrib)
+	{
+		return counts[attrib] != 0;
+	}
+
+	/**
+	 * Points the bound vertex array's attributes at the buffer bound to
+	 * GL_ARRAY_BUFFER.
+	 */
+	public void point()
+	{
+		for (int a = 0; a < counts.length; a++)
+			if (counts[a] != 0)
+				GL20.glVertexAttribPointer(a, counts[a], types[a], types[a] == GL11.GL_UNSIGNED_BYTE, stride, offsets[a]);
+	}
+
+	/**
+	 * Enables the attributes this format stores, except color, and disables
+	 * the rest, on the bound vertex array.
+	 */
+	public void enable()
+	{
+		for (int a = 0; a < counts.length; a++)
+		{
+			if (a == Vertex.COL_ATTRIB)
+				continue;
+
+			if (counts[a] != 0)
+				GLState.enableVertexAttribArray(a);
+			else
+				GLState.disableVertexAttribArray(a);
+		}
+	}
+
+	/**
+	 * Packs numVerts vertices of full layout data into dst, from its current
+	 * position on.
+	 */
+	public void pack(float[] src, int numVerts, ByteBuffer dst)
+	{
+		dst.order(ByteOrder.nativeOrder());
+
+		if (this == FULL)
+		{
+			int start = dst.position();
+			dst.asFloatBuffer().put(src, 0, numVerts*Vertex.NUM_ELEMENTS);
+			dst.position(start + numVerts*stride);
+
+			return;
+		}
+
+		int base = dst.position();
+
+		for (int v = 0; v < numVerts; v++)
+		{
+			int in = v*Vertex.NUM_ELEMENTS;
+			int out = base + v*stride;
+
+			for (int a = 0; a < counts.length; a++)
+			{
+				int i = in + CPU_OFFSETS[a];
+				int o = out + offsets[a];
+
+				for (int c = 0; c < counts[a]; c++)
+				{
+					float f = src[i + c];
+
+					switch (types[a])
+					{
+						case GL11.GL_FLOAT:
+							dst.putFloat(o + c*4, f);
+							break;
+						case GL30.GL_HALF_FLOAT:
+							dst.putShort(o + c*2, toHalf(f));
+							break;
+						case GL11.GL_UNSIGNED_BYTE:
+							dst.put(o + c, (byte)Math.round(Math.max(0, Math.min(1, f))*255));
+							break;
+					}
+				}
+			}
+		}
+
+		dst.position(base + numVerts*stride);
+	}
+
+	/**
+	 * Unpacks numVerts vertices from src, from its current position on, back
+	 * into full layout data. Attributes this format doesn't store come back
+	 * zeroed, and a missing w as 1.
+	 */
+	public float[] unpack(ByteBuffer src, int numVerts)
+	{
+		float[] dst = new float[numVerts*Vertex.NUM_ELEMENTS];
+
+		src.order(ByteOrder.nativeOrder());
+
+		int base = src.position();
+
+		for (int v = 0; v < numVerts; v++)
+		{
+			int in = base + v*stride;
+			int out = v*Vertex.NUM_ELEMENTS;
+
+			for (int a = 0; a < counts.length; a++)
+			{
+				int i = in + offsets[a];
+				int o = out + CPU_OFFSETS[a];
+
+				for (int c = 0; c < counts[a]; c++)
+				{
+					switch (types[a])
+					{
+						case GL11.GL_FLOAT:
+							dst[o + c] = src.getFloat(i + c*4);
+							break;
+						case GL30.GL_HALF_FLOAT:
+							dst[o + c] = fromHalf(src.getShort(i + c*2));
+							break;
+						case GL11.GL_UNSIGNED_BYTE:
+							dst[o + c] = (src.get(i + c) & 0xFF)/255f;
+							break;
+					}
+				}
+			}
+
+			if (counts[Vertex.POS_ATTRIB] < Vertex.POS_COUNT)
+				dst[out + CPU_OFFSETS[Vertex.POS_ATTRIB] + 3] = 1;
+		}
+
+		return dst;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof VertexFormat))
+			return false;
+
+		VertexFormat f = (VertexFormat)o;
+
+		return Arrays.equals(counts, f.counts) && Arrays.equals(types, f.types) && Arrays.equals(offsets, f.offsets);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31*Arrays.hashCode(counts) + Arrays.hashCode(types);
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " (" + stride + " bytes)";
+	}
+
+	private static int sizeOf(int type)
+	{
+		switch (type)
+		{
+			case GL11.GL_FLOAT:
+				return 4;
+			case GL30.GL_HALF_FLOAT:
+				return 2;
+			case GL11.GL_UNSIGNED_BYTE:
+				return 1;
+			default:
+				throw new RuntimeException("Unsupported vertex attribute type: " + type);
+		}
+	}
+
+	private static int align(int size)
+	{
+		return (size + 3) & ~3;
+	}
+
+	/**
+	 * Rounds a float to the nearest half float, keeping infinities and NaN
+	 * and flushing values too small for a half to zero.
+	 */
+	static short toHalf(float f)
+	{
+		int bits = Float.floatToIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int exp = (bits >>> 23) & 0xFF;
+		int mant = bits & 0x7FFFFF;
+
+		if (exp == 0xFF)
+			return (short)(sign | 0x7C00 | (mant != 0 ? 0x200 : 0));
+
+		int e = exp - 127 + 15;
+
+		if (e >= 0x1F)
+			return (short)(sign | 0x7C00);
+
+		if (e <= 0)
+		{
+			if (e < -10)
+				return (short)sign;
+
+			// Subnormal half.
+			mant |= 0x800000;
+			int shift = 14 - e;
+			int half = mant >> shift;
+
+			if (((mant >> (shift - 1)) & 1) != 0)
+				half++;
+
+			return (short)(sign | half);
+		}
+
+		int half = sign | (e << 10) | (mant >> 13);
+
+		// Round to nearest, carrying into the exponent if need be.
+		if ((mant & 0x1000) != 0)
+			half++;
+
+		return (short)half;
+	}
+
+	static float fromHalf(short h)
+	{
+		int bits = h & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exp = (bits >>> 10) & 0x1F;
+		int mant = bits & 0x3FF;
+
+		if (exp == 0x1F)
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+
+		if (exp == 0)
+		{
+			float f = mant/1024f/16384f;
+			return (sign != 0) ? -f : f;
+		}
+
+		return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mant << 13));
+	}
+}
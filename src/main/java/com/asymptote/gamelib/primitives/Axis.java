@@ -2,10 +2,8 @@ package com.asymptote.gamelib.primitives;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
-import com.asymptote.gamelib.core.Camera;
+import com.asymptote.gamelib.graphics.GLState;
 import com.asymptote.gamelib.graphics.Renderable;
 import com.asymptote.gamelib.graphics.Vertex;
 
@@ -48,20 +46,15 @@ public class Axis extends Renderable
 	@Override
 	public void render()
 	{
-		Camera.getGlobal().use();
+		applyModelMatrix();
 		
 		//System.out.println("Rendering axes");		
 		
-		GL30.glBindVertexArray(getVertArray());
-		GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
+		GLState.bindVertexArray(getVertArray());
+		GLState.enableVertexAttribArray(Vertex.POS_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.COL_ATTRIB);
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());		
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());		
 		GL11.glDrawElements(GL11.GL_LINES, INDICES.length, GL11.GL_UNSIGNED_BYTE, 0);		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		
-		GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL30.glBindVertexArray(0);
 	}
 }
@@ -2,11 +2,9 @@ package com.asymptote.gamelib.primitives;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
-import com.asymptote.gamelib.core.Camera;
-import com.asymptote.gamelib.graphics.Vertex;
+import com.asymptote.gamelib.graphics.GLState;
+import com.asymptote.gamelib.graphics.VertexFormat;
 
 public class Circle extends Circular
 {	
@@ -14,12 +12,15 @@ public class Circle extends Circular
 	
 	public Circle(float radius, int slices, boolean ring)
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("circle", radius, slices, ring)), VertexFormat.COLORED);
 
 		this.slices = slices;
 		this.isRing = ring;
 		this.radius = radius;
 		
+		if (isShared())
+			return;
+		
 		int verts = slices;
 		
 		if (!isRing && slices >= ARB_MIN)
@@ -82,6 +83,8 @@ public class Circle extends Circular
 		
 				
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("circle", radius, slices, ring), this);
 	}
 	
 	
@@ -104,24 +107,13 @@ public class Circle extends Circular
 		}
 		else
 		{
-			Camera c = Camera.getGlobal();			
-			c.setModelMatrix(getModelMatrix()).use();
+			applyModelMatrix();
 						
-			GL30.glBindVertexArray(getVertArray());
-			GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-			GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
-			GL20.glEnableVertexAttribArray(Vertex.TEX_ATTRIB);
+			GLState.bindVertexArray(getVertArray());
+			enableAttributes();
 			
-			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
+			GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
 			GL11.glDrawArrays(GL11.GL_LINE_LOOP, 0, slices);		
-			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-			
-			GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-			GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-			GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-			GL30.glBindVertexArray(0);			
-
-			c.resetModelMatrix();
 		}
 	}
 }
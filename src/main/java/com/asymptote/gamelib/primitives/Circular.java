@@ -5,6 +5,8 @@ import static java.lang.Math.sin;
 import static java.lang.Math.toRadians;
 
 import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.SharedGeometry;
+import com.asymptote.gamelib.graphics.VertexFormat;
 
 public abstract class Circular extends Renderable
 {
@@ -16,6 +18,16 @@ public abstract class Circular extends Renderable
 	protected float radius;
 	protected int slices;
 	
+	protected Circular()
+	{
+		super();
+	}
+	
+	protected Circular(SharedGeometry geometry, VertexFormat format)
+	{
+		super(geometry, format);
+	}
+	
 	protected static float[] makeRing(float radius, int slices, float[] origin)
 	{
 		float[] verts = new float[4*slices];
@@ -1,5 +1,7 @@
 package com.asymptote.gamelib.primitives;
 
+import com.asymptote.gamelib.graphics.VertexFormat;
+
 public class Cone extends Circular
 {
 	private static final float DEFAULT_HEIGHT = 1;
@@ -8,12 +10,15 @@ public class Cone extends Circular
 	
 	public Cone (float radius, float height, int slices)
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("cone", radius, height, slices)), VertexFormat.COLORED);
 		
 		this.radius = radius > 0 ? radius : DEFAULT_RADIUS;
 		this.height = height > 0 ? height : DEFAULT_HEIGHT;
 		this.slices = slices > 2 ? slices : DEFAULT_SLICES;
 		
+		if (isShared())
+			return;
+		
 		int verts = slices+1;
 		
 		if (slices >= ARB_MIN)
@@ -102,6 +107,8 @@ public class Cone extends Circular
 		loadIndices(indices);
 		
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("cone", radius, height, slices), this);
 	}
 	
 	@Override
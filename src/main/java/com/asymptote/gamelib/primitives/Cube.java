@@ -1,6 +1,7 @@
 package com.asymptote.gamelib.primitives;
 
 import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.VertexFormat;
 
 public class Cube extends Renderable
 {
@@ -26,20 +27,28 @@ public class Cube extends Renderable
 	
 	public Cube()
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("cube", 1f)), VertexFormat.COLORED);
+		
+		if (isShared())
+			return;
 		
 		loadVerts(VERTS);
 		loadIndices(INDICES);
 		
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("cube", 1f), this);
 	}
 	
 	public Cube(float size)
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("cube", size)), VertexFormat.COLORED);
 		
 		this.size = (size > 0) ? size : DEFAULT_SIZE;
 		
+		if (isShared())
+			return;
+		
 		float[] verts = new float[VERTS.length];
 		
 		for (int i = 0; i < verts.length; i++)
@@ -50,6 +59,8 @@ public class Cube extends Renderable
 		
 		setColor(DEFAULT_COLOR);
 		
+		MeshCache.share(MeshCache.key("cube", size), this);
+		
 		System.out.println("Cube initialized");
 	}
 	
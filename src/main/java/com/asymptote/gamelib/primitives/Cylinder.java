@@ -1,5 +1,7 @@
 package com.asymptote.gamelib.primitives;
 
+import com.asymptote.gamelib.graphics.VertexFormat;
+
 
 public class Cylinder extends Circular
 {
@@ -15,13 +17,16 @@ public class Cylinder extends Circular
 	
 	public Cylinder(float radius, float height, int slices, boolean isCapped)
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("cylinder", radius, height, slices, isCapped)), VertexFormat.COLORED);
 		
 		this.radius = radius > 0 ? radius : DEFAULT_RADIUS;
 		this.height = height > 0 ? height : DEFAULT_HEIGHT;
 		this.slices = slices > 2 ? slices : DEFAULT_SLICES;
 		this.isCapped = isCapped;
 		
+		if (isShared())
+			return;
+		
 		float[] vertices = makeVerts(this.radius, this.height, this.slices);
 		int[] indices = makeIndices(vertices.length/4, this.slices);
 		
@@ -29,6 +34,8 @@ public class Cylinder extends Circular
 		loadIndices(indices);
 		
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("cylinder", radius, height, slices, isCapped), this);
 	}
 	
 	private float[] makeVerts(float radius, float height, int slices)
@@ -2,9 +2,8 @@ package com.asymptote.gamelib.primitives;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
+import com.asymptote.gamelib.graphics.GLState;
 import com.asymptote.gamelib.graphics.Renderable;
 import com.asymptote.gamelib.graphics.Vertex;
 
@@ -33,18 +32,12 @@ public class FrameQuad extends Renderable
 	@Override
 	public void render()
 	{		
-		GL30.glBindVertexArray(getVertArray());
-		GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.TEX_ATTRIB);
+		GLState.bindVertexArray(getVertArray());
+		GLState.enableVertexAttribArray(Vertex.POS_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.COL_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.TEX_ATTRIB);
 		
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
 		GL11.glDrawArrays(GL11.GL_TRIANGLE_FAN, 0, 4);		
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-		
-		GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-		GL30.glBindVertexArray(0);
 	}
 }
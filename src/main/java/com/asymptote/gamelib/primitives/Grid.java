@@ -2,12 +2,10 @@ package com.asymptote.gamelib.primitives;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
-import com.asymptote.gamelib.core.Camera;
+import com.asymptote.gamelib.graphics.GLState;
 import com.asymptote.gamelib.graphics.Renderable;
-import com.asymptote.gamelib.graphics.Vertex;
+import com.asymptote.gamelib.graphics.VertexFormat;
 
 public class Grid extends Renderable
 {
@@ -22,12 +20,17 @@ public class Grid extends Renderable
 	
 	public Grid(int r, int c, float spacing, boolean filled)
 	{
+		super(MeshCache.acquire(MeshCache.key("grid", r, c, spacing, filled)), VertexFormat.COLORED);
+		
 		this.rows = (r >= DEFAULT_ROWS)?r:DEFAULT_ROWS;
 		this.cols = (c >= DEFAULT_COLS)?c:DEFAULT_COLS;
 		this.width = (cols)*spacing;
 		this.height = (rows)*spacing;		
 		this.isFilled = filled;
 		
+		if (isShared())
+			return;
+		
 		r++;
 		c++;
 		
@@ -97,6 +100,8 @@ public class Grid extends Renderable
 		}
 		
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("grid", r-1, c-1, spacing, filled), this);
 	}
 	
 	
@@ -116,24 +121,13 @@ public class Grid extends Renderable
 		}
 		else
 		{
-			Camera c = Camera.getGlobal();			
-			c.setModelMatrix(getModelMatrix()).use();
+			applyModelMatrix();
 			
-			GL30.glBindVertexArray(getVertArray());
-			GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-			GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
-			GL20.glEnableVertexAttribArray(Vertex.TEX_ATTRIB);
+			GLState.bindVertexArray(getVertArray());
+			enableAttributes();
 			
-			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
+			GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, getVertBuffer());		
 			GL11.glDrawArrays(GL11.GL_LINES, 0, ((rows+1)*(cols+1)*4));		
-			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-			
-			GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-			GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-			GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-			GL30.glBindVertexArray(0);
-			
-			c.resetModelMatrix();	
 		}
 	}
 }
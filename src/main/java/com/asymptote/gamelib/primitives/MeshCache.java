@@ -0,0 +1,105 @@
+package com.asymptote.gamelib.primitives;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.SharedGeometry;
+
+/**
+ * Primitive meshes already on the GPU, keyed by their shape and parameters,
+ * so that making the same primitive again shares the buffers of the first
+ * instead of building new ones. The buffers go when the last primitive using
+ * them is freed, and the entry is dropped with them.
+ *
+ * Only the geometry is shared: every primitive still has its own transform
+ * and color.
+ */
+public class MeshCache
+{
+	private static Map<String, SharedGeometry> meshes = new HashMap<String, SharedGeometry>();
+	private static boolean enabled = true;
+
+	/**
+	 * The key for a shape with the given parameters.
+	 */
+	public static String key(String shape, Object... params)
+	{
+		StringBuilder key = new StringBuilder(shape);
+
+		for (Object p : params)
+			key.append(':').append(p);
+
+		return key.toString();
+	}
+
+	/**
+	 * The cached geometry for the key, with a reference added for the
+	 * caller, or null if there isn't any yet.
+	 */
+	public static SharedGeometry acquire(String key)
+	{
+		if (!enabled)
+			return null;
+
+		SharedGeometry geometry = meshes.get(key);
+
+		if (geometry == null)
+			return null;
+
+		if (geometry.isReleased())
+		{
+			meshes.remove(key);
+			return null;
+		}
+
+		return geometry.acquire();
+	}
+
+	/**
+	 * Caches a newly built primitive's geometry under the key, for later
+	 * ones to share.
+	 */
+	public static void share(String key, Renderable mesh)
+	{
+		if (!enabled)
+			return;
+
+		prune();
+
+		meshes.put(key, mesh.share());
+	}
+
+	/**
+	 * Turns sharing off (or on again) for primitives made from now on.
+	 */
+	public static void setEnabled(boolean enable)
+	{
+		enabled = enable;
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * The number of meshes cached and still in use.
+	 */
+	public static int size()
+	{
+		prune();
+
+		return meshes.size();
+	}
+
+	private static void prune()
+	{
+		Iterator<SharedGeometry> it = meshes.values().iterator();
+
+		while (it.hasNext())
+			if (it.next().isReleased())
+				it.remove();
+	}
+}
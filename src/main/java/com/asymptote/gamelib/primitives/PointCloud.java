@@ -5,10 +5,8 @@ import java.util.List;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
-import com.asymptote.gamelib.core.Camera;
+import com.asymptote.gamelib.graphics.GLState;
 import com.asymptote.gamelib.graphics.Renderable;
 import com.asymptote.gamelib.graphics.Vertex;
 
@@ -105,23 +103,14 @@ public class PointCloud extends Renderable
 			dirty = false;
 		}
 		
-		Camera c = Camera.getGlobal();		
-		c.setModelMatrix(getModelMatrix()).use();
+		applyModelMatrix();
 		
-		GL30.glBindVertexArray(getVertArray());
-		GL20.glEnableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glEnableVertexAttribArray(Vertex.TEX_ATTRIB);
+		GLState.bindVertexArray(getVertArray());
+		GLState.enableVertexAttribArray(Vertex.POS_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.COL_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.TEX_ATTRIB);
 		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());
 		GL11.glDrawArrays(GL11.GL_POINTS, 0, points.size());		
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		
-		GL20.glDisableVertexAttribArray(Vertex.POS_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.COL_ATTRIB);
-		GL20.glDisableVertexAttribArray(Vertex.TEX_ATTRIB);
-		GL30.glBindVertexArray(0);
-		
-		c.resetModelMatrix();
 	}
 }
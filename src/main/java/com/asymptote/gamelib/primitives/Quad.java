@@ -1,6 +1,7 @@
 package com.asymptote.gamelib.primitives;
 
 import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.VertexFormat;
 
 public class Quad extends Renderable
 {
@@ -18,7 +19,7 @@ public class Quad extends Renderable
 	
 	public Quad()
 	{
-		super();
+		super(VertexFormat.TEXTURED);
 		
 		loadVerts(VERTS);
 		loadIndices(INDICES);
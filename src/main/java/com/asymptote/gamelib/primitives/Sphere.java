@@ -1,5 +1,7 @@
 package com.asymptote.gamelib.primitives;
 
+import com.asymptote.gamelib.graphics.VertexFormat;
+
 import java.util.ArrayList;
 
 import static java.lang.Math.*;
@@ -12,13 +14,16 @@ public class Sphere extends Circular
 	
 	public Sphere(float radius, int rings, int slices)
 	{
-		super();
+		super(MeshCache.acquire(MeshCache.key("sphere", radius, rings, slices)), VertexFormat.COLORED);
 		
 		// For sanitizing input, and for data retrieval?
 		this.radius = radius > 0 ? radius : DEFAULT_RADIUS;
 		this.rings = rings >= 1 ? rings : DEFAULT_RINGS;
 		this.slices = slices > 2 ? slices : DEFAULT_SLICES;
 		
+		if (isShared())
+			return;
+		
 		float[] vertices = makeVerts(this.radius, this.rings, this.slices);
 		int[] indices = makeIndices(vertices.length/4, this.rings, this.slices);
 		
@@ -26,6 +31,8 @@ public class Sphere extends Circular
 		loadIndices(indices);
 		
 		setColor(DEFAULT_COLOR);
+		
+		MeshCache.share(MeshCache.key("sphere", radius, rings, slices), this);
 	}	
 	
 	private float[] makeVerts(float radius, int rings, int slices)
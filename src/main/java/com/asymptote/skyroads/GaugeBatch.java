@@ -0,0 +1,367 @@
+package com.asymptote.skyroads;
+
+import static java.lang.Math.*;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+
+import com.asymptote.gamelib.graphics.GLState;
+import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.Vertex;
+import com.asymptote.gamelib.graphics.VertexFormat;
+
+/**
+ * Any number of radial gauges (arcs of a ring or a disc, cut into slices that
+ * light up as the gauge fills) packed into one vertex buffer. Filled gauges
+ * are stored as triangles and outlines as lines, each gauge's slices one
+ * after the other, so how full a gauge is only decides how many of its
+ * vertices get drawn. Every filled gauge is drawn with a single
+ * glMultiDrawArrays call, and every outline with another.
+ *
+ * Gauges are positioned by their location alone, baked into the vertices.
+ * Changing a gauge's shape, location or color rebuilds the buffer on the
+ * next render; changing its percent doesn't.
+ */
+public class GaugeBatch extends Renderable
+{
+	private List<Gauge> gauges = new ArrayList<Gauge>();
+	private boolean rebuild;
+
+	// Where in the buffer each gauge's vertices start, and how many of them
+	// to draw, for the triangle and line draws.
+	private IntBuffer fillFirsts;
+	private IntBuffer fillCounts;
+	private IntBuffer lineFirsts;
+	private IntBuffer lineCounts;
+
+	public GaugeBatch()
+	{
+		super(VertexFormat.COLORED);
+
+		setStatic(false);
+	}
+
+	/**
+	 * Adds a gauge, running from the start angle to the end one, in degrees,
+	 * between radDist and radius from its center (0 for a pie rather than a
+	 * ring), in slices with gapSize degrees between them. Filled gauges are
+	 * drawn solid, the rest as outlines. Gauges are drawn in the order
+	 * they're added, fills before outlines.
+	 */
+	public Gauge add(float start, float end, float radius, float radDist, int slices, float gapSize, boolean filled)
+	{
+		Gauge g = new Gauge(start, end, radius, radDist, slices, gapSize, filled);
+
+		gauges.add(g);
+		rebuild = true;
+
+		return g;
+	}
+
+	@Override
+	public void update(double delta)
+	{
+	}
+
+	@Override
+	public void render()
+	{
+		if (rebuild)
+			build();
+
+		fillCounts.clear();
+		lineCounts.clear();
+
+		for (int i = 0; i < gauges.size(); i++)
+		{
+			Gauge g = gauges.get(i);
+
+			if (g.filled)
+				fillCounts.put(g.getVisibleVerts());
+			else
+				lineCounts.put(g.getVisibleVerts());
+		}
+
+		fillCounts.flip();
+		lineCounts.flip();
+
+		applyModelMatrix();
+
+		GLState.bindVertexArray(getVertArray());
+		enableAttributes();
+
+		GLState.polygonMode(GL11.GL_FILL);
+
+		if (fillFirsts.limit() > 0)
+			GL14.glMultiDrawArrays(GL11.GL_TRIANGLES, fillFirsts, fillCounts);
+		if (lineFirsts.limit() > 0)
+			GL14.glMultiDrawArrays(GL11.GL_LINES, lineFirsts, lineCounts);
+	}
+
+	private void build()
+	{
+		int fills = 0;
+		int lines = 0;
+		int total = 0;
+
+		for (Gauge g : gauges)
+		{
+			total += g.getTotalVerts();
+
+			if (g.filled)
+				fills++;
+			else
+				lines++;
+		}
+
+		float[] verts = new float[total*Vertex.NUM_ELEMENTS];
+
+		fillFirsts = BufferUtils.createIntBuffer(fills);
+		fillCounts = BufferUtils.createIntBuffer(fills);
+		lineFirsts = BufferUtils.createIntBuffer(lines);
+		lineCounts = BufferUtils.createIntBuffer(lines);
+
+		// Filled gauges first, so all the triangles come before the lines.
+		int v = 0;
+		for (Gauge g : gauges)
+			if (g.filled)
+			{
+				fillFirsts.put(v);
+				v = g.write(verts, v);
+			}
+
+		for (Gauge g : gauges)
+			if (!g.filled)
+			{
+				lineFirsts.put(v);
+				v = g.write(verts, v);
+			}
+
+		fillFirsts.flip();
+		lineFirsts.flip();
+
+		loadInterleaved(verts);
+
+		rebuild = false;
+	}
+
+	public class Gauge
+	{
+		private final float startAngle;
+		private final float endAngle;
+		private final float gapSize;
+		private final float radius;
+		private final float radDist;
+		private final int slices;
+		private final boolean filled;
+
+		private float x;
+		private float y;
+		private float z;
+		private float[] color = DEFAULT_COLOR;
+
+		private float percent;
+
+		private Gauge(float start, float end, float radius, float radDist, int slices, float gapSize, boolean filled)
+		{
+			this.startAngle = (float)toRadians(start);
+			this.endAngle = (float)toRadians(end);
+
+			this.gapSize = (gapSize >= 0) ? (float)toRadians(gapSize) : 0;
+			this.slices = (slices >= 2) ? slices : 2;
+
+			this.radius = (radius > 0) ? radius : 1;
+			this.radDist = (radDist >= 0) ? radDist : 0;
+
+			this.filled = filled;
+		}
+
+		public Gauge setLocation(float x, float y, float z)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+
+			rebuild = true;
+
+			return this;
+		}
+
+		public Gauge setColor(int color)
+		{
+			this.color = new float[] {((color >>> 24) & 0xFF)/255f, ((color >>> 16) & 0xFF)/255f,
+									  ((color >>> 8) & 0xFF)/255f, (color & 0xFF)/255f};
+
+			rebuild = true;
+
+			return this;
+		}
+
+		public float getPercent()
+		{
+			return percent;
+		}
+
+		public Gauge setPercent(float curr)
+		{
+			percent = curr;
+
+			return this;
+		}
+
+		public Gauge setPercent(float max, float curr)
+		{
+			percent = curr/max;
+
+			return this;
+		}
+
+		/**
+		 * How many slices the current percent shows. It only changes when
+		 * the fill crosses a slice boundary, so it tells whether the gauge
+		 * would look any different.
+		 */
+		public int getVisibleSlices()
+		{
+			int visible = (int)ceil(percent * slices);
+
+			return max(0, min(slices, visible));
+		}
+
+		// An outline without gaps only has radial edges at its two ends,
+		// unless it goes all the way round.
+		private boolean hasEnds()
+		{
+			return !filled && gapSize == 0 && abs(endAngle-startAngle) < 2*PI - 1e-4;
+		}
+
+		private int getSliceVerts()
+		{
+			if (filled)
+				return (radDist > 0) ? 6 : 3;
+
+			if (gapSize > 0)
+				return (radDist > 0) ? 8 : 6;
+
+			return (radDist > 0) ? 4 : 2;
+		}
+
+		private int getTotalVerts()
+		{
+			return slices*getSliceVerts() + (hasEnds() ? 4 : 0);
+		}
+
+		private int getVisibleVerts()
+		{
+			int visible = getVisibleSlices();
+
+			if (visible == 0)
+				return 0;
+
+			int count = visible*getSliceVerts();
+
+			if (hasEnds())
+				count += (visible == slices) ? 4 : 2;
+
+			return count;
+		}
+
+		/**
+		 * Writes this gauge's vertices at vertex v, start edge first and end
+		 * edge last, and returns the vertex after them.
+		 */
+		private int write(float[] verts, int v)
+		{
+			int dir = (endAngle-startAngle > 0) ? 1 : -1;
+
+			float sliceAngle = abs(endAngle-startAngle)/slices - gapSize;
+			float gap = dir*gapSize;
+			float slice = dir*sliceAngle;
+
+			float first = startAngle + gap/2;
+
+			if (hasEnds())
+				v = edge(verts, v, first);
+
+			float curr = first;
+			for (int s = 0; s < slices; s++)
+			{
+				float next = curr + slice;
+
+				if (filled)
+				{
+					v = outer(verts, v, curr);
+					v = inner(verts, v, curr);
+					v = outer(verts, v, next);
+
+					if (radDist > 0)
+					{
+						v = outer(verts, v, next);
+						v = inner(verts, v, curr);
+						v = inner(verts, v, next);
+					}
+				}
+				else
+				{
+					v = outer(verts, v, curr);
+					v = outer(verts, v, next);
+
+					if (radDist > 0)
+					{
+						v = inner(verts, v, curr);
+						v = inner(verts, v, next);
+					}
+
+					if (gapSize > 0)
+					{
+						v = edge(verts, v, curr);
+						v = edge(verts, v, next);
+					}
+				}
+
+				curr = next + gap;
+			}
+
+			if (hasEnds())
+				v = edge(verts, v, curr - gap);
+
+			return v;
+		}
+
+		private int edge(float[] verts, int v, float angle)
+		{
+			v = outer(verts, v, angle);
+			return inner(verts, v, angle);
+		}
+
+		private int outer(float[] verts, int v, float angle)
+		{
+			return vertex(verts, v, (float)cos(angle)*radius, (float)sin(angle)*radius);
+		}
+
+		private int inner(float[] verts, int v, float angle)
+		{
+			return vertex(verts, v, (float)cos(angle)*radDist, (float)sin(angle)*radDist);
+		}
+
+		private int vertex(float[] verts, int v, float px, float py)
+		{
+			int i = v*Vertex.NUM_ELEMENTS;
+
+			verts[i + Vertex.POS_OFFSET/Vertex.FLOAT_SIZE]     = x + px;
+			verts[i + Vertex.POS_OFFSET/Vertex.FLOAT_SIZE + 1] = y + py;
+			verts[i + Vertex.POS_OFFSET/Vertex.FLOAT_SIZE + 2] = z;
+			verts[i + Vertex.POS_OFFSET/Vertex.FLOAT_SIZE + 3] = 1;
+
+			for (int c = 0; c < Vertex.COL_COUNT; c++)
+				verts[i + Vertex.COL_OFFSET/Vertex.FLOAT_SIZE + c] = color[c];
+
+			return v + 1;
+		}
+	}
+}
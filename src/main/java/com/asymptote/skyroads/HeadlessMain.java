@@ -0,0 +1,120 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+
+import com.asymptote.gamelib.core.Clock;
+import com.asymptote.gamelib.core.HeadlessGame;
+import com.asymptote.gamelib.core.Input;
+
+/**
+ * Plays a level without a window, holding the accelerator down until the ship
+ * reaches the end, the player dies, or the step limit runs out. Given an input
+ * log, plays that back instead, for as many steps as were recorded, and checks
+ * the ship ends up where it did in the recording.
+ *
+ * Usage: HeadlessMain [level] [maxSteps] [inputLog]
+ */
+public class HeadlessMain extends HeadlessGame
+{
+	public static final String DEFAULT_LEVEL = "res/testlevel";
+	public static final long DEFAULT_MAX_STEPS = 100000;
+	
+	private String levelPath;
+	private LevelSimulation sim;
+	
+	private InputLog log;
+	private InputReplay replay;
+	private double delta;
+	
+	public HeadlessMain(String levelPath, long maxSteps)
+	{
+		this(levelPath, maxSteps, null);
+	}
+	
+	public HeadlessMain(String levelPath, long maxSteps, InputLog log)
+	{
+		super((log != null) ? log.getLength() : maxSteps);
+		
+		this.levelPath = levelPath;
+		this.log = log;
+		
+		Clock.setGoalFPS(30);
+	}
+	
+	@Override
+	protected void init()
+	{
+		Level level = Level.loadLevel(levelPath);
+		
+		if (level == null)
+			throw new IllegalStateException("level creation failed");
+		
+		sim = new LevelSimulation();
+		sim.setLevel(level);
+		sim.setShip(new Ship());
+		
+		if (log != null)
+		{
+			sim.setSeed(log.getSeed());
+			replay = new InputReplay(log);
+			delta = log.getStepDelta();
+		}
+		
+		sim.startScene();
+		
+		if (replay == null)
+			sim.handleInput(Input.UP, true);
+	}
+	
+	@Override
+	protected void update(double delta)
+	{
+		if (replay != null)
+		{
+			replay.apply(sim.getSteps(), sim);
+			sim.update(this.delta);
+			return;
+		}
+		
+		sim.update(delta);
+		
+		if (sim.atEnd() || sim.getPlayer().getState() != Player.State.ALIVE)
+			stop();
+	}
+	
+	@Override
+	protected void cleanup()
+	{
+		Ship ship = sim.getShip();
+		
+		System.out.println("Finished after " + getSteps() + " steps (" + String.format("%.2f", getSimulatedTime()) + "s of game time)");
+		System.out.println("Reached end: " + sim.atEnd() + "  |  Player: " + sim.getPlayer().getState());
+		System.out.println("Ship at " + ship.getHorzPos() + ", " + ship.getDistance() + ", " + ship.getAltitude());
+		System.out.println(String.format("Ran in %.3fs, %.0f updates per second", getElapsedTime(), getUPS()));
+		
+		if (log != null)
+			System.out.println("Replayed " + log.getEventCount() + " inputs, matches recording: " + log.matchesEnd(sim));
+	}
+	
+	public static void main(String[] args)
+	{
+		String path = (args.length > 0) ? args[0] : DEFAULT_LEVEL;
+		long steps = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_MAX_STEPS;
+		
+		InputLog log = null;
+		if (args.length > 2)
+		{
+			try
+			{
+				log = InputLog.read(args[2]);
+			}
+			catch (IOException e)
+			{
+				System.out.println("Could not read input log: " + e.getMessage());
+				return;
+			}
+		}
+		
+		new HeadlessMain(path, steps, log).run();
+	}
+}
@@ -0,0 +1,197 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.asymptote.gamelib.core.Input;
+
+/**
+ * The inputs given to a {@link LevelSimulation}, tagged with the update step
+ * they arrived before, so a run can be played back exactly. Events are stored
+ * already encoded, two or three bytes each: the number of steps since the
+ * previous event as a varint, then the input ordinal with the top bit set if
+ * the input went active. Steps with no input cost nothing.
+ *
+ * <pre>
+ * int    magic ("SKYR")
+ * int    version
+ * long   random seed
+ * double step delta, in seconds
+ * long   length, in steps
+ * float  ship x, distance, altitude at the end of the run
+ * int    event count
+ * int    encoded size, in bytes
+ * byte[] events
+ * </pre>
+ */
+public class InputLog
+{
+	public static final int MAGIC = 0x52594B53;		// "SKYR" in little endian
+	public static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 3*4 + 4 + 4;
+	
+	static final int ACTIVE = 0x80;
+	static final int INPUT_MASK = 0x7f;
+	
+	private long seed;
+	private double stepDelta;
+	private long length;
+	private float[] endPosition = new float[3];
+	
+	private byte[] events = new byte[256];
+	private int size;
+	private int count;
+	private long lastStep;
+	
+	public InputLog(long seed, double stepDelta)
+	{
+		this.seed = seed;
+		this.stepDelta = stepDelta;
+	}
+	
+	public void add(long step, Input input, boolean active)
+	{
+		if (step < lastStep)
+			throw new IllegalArgumentException("Input at step " + step + " is before the last one recorded, at " + lastStep + ".");
+		
+		if (size + 11 > events.length)
+			events = Arrays.copyOf(events, events.length*2);
+		
+		long gap = step - lastStep;
+		while ((gap & ~0x7fL) != 0)
+		{
+			events[size++] = (byte)((gap & 0x7f) | 0x80);
+			gap >>>= 7;
+		}
+		events[size++] = (byte)gap;
+		events[size++] = (byte)(input.ordinal() | (active ? ACTIVE : 0));
+		
+		lastStep = step;
+		count++;
+	}
+	
+	/**
+	 * Marks the end of the run, keeping where the ship ended up so a replay
+	 * can check it got to the same place.
+	 */
+	public void finish(LevelSimulation sim)
+	{
+		Ship ship = sim.getShip();
+		
+		length = sim.getSteps();
+		endPosition[0] = ship.getHorzPos();
+		endPosition[1] = ship.getDistance();
+		endPosition[2] = ship.getAltitude();
+	}
+	
+	/**
+	 * Whether the ship is exactly where it was at the end of the recorded run.
+	 */
+	public boolean matchesEnd(LevelSimulation sim)
+	{
+		Ship ship = sim.getShip();
+		
+		return	Float.floatToIntBits(ship.getHorzPos()) == Float.floatToIntBits(endPosition[0]) &&
+				Float.floatToIntBits(ship.getDistance()) == Float.floatToIntBits(endPosition[1]) &&
+				Float.floatToIntBits(ship.getAltitude()) == Float.floatToIntBits(endPosition[2]);
+	}
+	
+	public long getSeed()
+	{
+		return seed;
+	}
+	
+	public double getStepDelta()
+	{
+		return stepDelta;
+	}
+	
+	public long getLength()
+	{
+		return length;
+	}
+	
+	public int getEventCount()
+	{
+		return count;
+	}
+	
+	byte[] getEvents()
+	{
+		return events;
+	}
+	
+	int getEncodedSize()
+	{
+		return size;
+	}
+	
+	public static InputLog read(String path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE)
+				throw new IOException("File is too small to be an input log.");
+			
+			ByteBuffer buffer = ByteBuffer.allocate((int)fileSize).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining())
+				if (channel.read(buffer) < 0)
+					break;
+			buffer.flip();
+			
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("File is not an input log.");
+			
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("Input log is version " + version + ", expected version " + VERSION + ".");
+			
+			InputLog log = new InputLog(buffer.getLong(), buffer.getDouble());
+			log.length = buffer.getLong();
+			for (int i = 0; i < 3; i++)
+				log.endPosition[i] = buffer.getFloat();
+			
+			log.count = buffer.getInt();
+			log.size = buffer.getInt();
+			if (log.size < 0 || log.size > buffer.remaining())
+				throw new IOException("Input log is truncated, expected " + log.size + " bytes of events.");
+			
+			log.events = new byte[Math.max(log.size, 1)];
+			buffer.get(log.events, 0, log.size);
+			
+			return log;
+		}
+	}
+	
+	public void write(String path) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size).order(ByteOrder.LITTLE_ENDIAN);
+		
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(seed);
+		buffer.putDouble(stepDelta);
+		buffer.putLong(length);
+		for (int i = 0; i < 3; i++)
+			buffer.putFloat(endPosition[i]);
+		
+		buffer.putInt(count);
+		buffer.putInt(size);
+		buffer.put(events, 0, size);
+		buffer.flip();
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+}
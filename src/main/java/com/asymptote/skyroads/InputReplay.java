@@ -0,0 +1,67 @@
+package com.asymptote.skyroads;
+
+import com.asymptote.gamelib.core.Input;
+
+/**
+ * Feeds a recorded {@link InputLog} back into a simulation. Events are decoded
+ * straight from the log's bytes as they come due, so stepping a replay
+ * allocates nothing.
+ */
+public class InputReplay
+{
+	private static final Input[] INPUTS = Input.values();
+	
+	private byte[] events;
+	private int size;
+	
+	private int pos;
+	private long nextStep;
+	
+	public InputReplay(InputLog log)
+	{
+		events = log.getEvents();
+		size = log.getEncodedSize();
+		
+		readGap();
+	}
+	
+	/**
+	 * Gives the simulation every input recorded before the given step. Call
+	 * once per step, before updating.
+	 */
+	public void apply(long step, LevelSimulation sim)
+	{
+		while (pos < size && nextStep == step)
+		{
+			int code = events[pos++] & 0xff;
+			
+			sim.handleInput(INPUTS[code & InputLog.INPUT_MASK], (code & InputLog.ACTIVE) != 0);
+			
+			readGap();
+		}
+	}
+	
+	public boolean isFinished()
+	{
+		return pos >= size;
+	}
+	
+	private void readGap()
+	{
+		long gap = 0;
+		int shift = 0;
+		int b;
+		
+		while (pos < size)
+		{
+			b = events[pos++];
+			gap |= (long)(b & 0x7f) << shift;
+			shift += 7;
+			
+			if ((b & 0x80) == 0)
+				break;
+		}
+		
+		nextStep += gap;
+	}
+}
@@ -1,21 +1,23 @@
 package com.asymptote.skyroads;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
 
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import com.asymptote.gamelib.core.Camera;
 import com.asymptote.gamelib.primitives.Cube;
 
 public class Level
 {
 	private final float[] DEFAULT_START = new float[] {0,0,0};
 	
-	private final float DRAW_DISTANCE = 100;
-	
 	public static final int HORZ_POS = 0;
 	public static final int DISTANCE = 1;
 	public static final int ALTITUDE = 2;
@@ -27,9 +29,42 @@ public class Level
 	public static final float DEFAULT_FUELLOSS = 1;
 	public static final float DEFAULT_DEATHHEIGHT = -10;
 	
+	private LevelData data;
+	private PanelIndex index;
+	
+	// Set for streamed levels, which only have the panels near the ship.
+	private LevelStream stream;
+	
+	// Set if the level's data came from, or was put in, the cache.
+	private LevelCache.Entry cached;
+	
+	// Meshes are only built once the level is first drawn, so a level can be
+	// loaded and simulated without an OpenGL context.
 	private List<Panel> panels;
+	private PanelBatch batch;
+	private PanelInstances instances;
 	private Cube endMarker;
 	
+	private PanelRenderMode renderMode = PanelRenderMode.INDIVIDUAL;
+	
+	// Panel ids sorted by distance, and the distance of each, for culling.
+	private int[] drawOrder;
+	private int[] drawDist;
+	private int maxPanelLength;
+	
+	// The run of panels in draw order that was visible last frame.
+	private int firstVisible;
+	private int lastVisible;
+	
+	private float depth;
+	private float drawDistance;
+	
+	private Matrix4f viewProj = new Matrix4f();
+	private Matrix4f invViewProj = new Matrix4f();
+	private FrustumIntersection frustum = new FrustumIntersection();
+	private Vector3f frustumMin = new Vector3f();
+	private Vector3f frustumMax = new Vector3f();
+	
 	private float gravity;
 	private float airLoss;
 	private float fuelLoss;
@@ -40,19 +75,38 @@ public class Level
 	
 	private float deathHeight;
 	
+	/**
+	 * Loads a level file, compiled or text. A file loaded before, unchanged,
+	 * comes from the {@link LevelCache} without being read again.
+	 */
 	public static Level loadLevel(String path)
 	{
 		try
 		{
-			FileInputStream file = new FileInputStream(path);
-
-			return new Level(file);
+			String key = LevelCache.isEnabled() ? LevelCache.key(path) : null;
+			LevelCache.Entry entry = (key != null) ? LevelCache.get(key) : null;
+			
+			if (entry != null)
+				return new Level(entry);
+			
+			LevelData data = LevelFile.isCompiled(path) ? LevelFile.read(path) : LevelParser.parse(Paths.get(path));
+			Level level = new Level(data);
+			
+			if (key != null)
+				level.cached = LevelCache.put(key, data, level.index, level.drawOrder, level.drawDist, level.maxPanelLength);
+			
+			return level;
 		}
-		catch (FileNotFoundException e)
+		catch (FileNotFoundException | NoSuchFileException e)
 		{
 			System.out.println("File could not be found, so no level built.");
 			return null;
 		}
+		catch (LevelFormatException e)
+		{
+			System.out.println(path + ": " + e.getMessage());
+			return null;
+		}
 		catch (Exception e)
 		{
 			System.out.println(e.getMessage());
@@ -61,162 +115,364 @@ public class Level
 		}
 	}
 	
-	private Level(InputStream stream) throws Exception
+	/**
+	 * Loads a level a segment at a time around the ship, instead of all at
+	 * once. Streamed levels are always drawn in batches, one per segment, and
+	 * can be endless.
+	 */
+	public static Level streamLevel(SegmentSource source)
+	{
+		return streamLevel(new LevelStream(source), source);
+	}
+	
+	public static Level streamLevel(LevelStream stream, SegmentSource source)
+	{
+		try
+		{
+			return new Level(source.getHeader(), stream);
+		}
+		catch (Exception e)
+		{
+			System.out.println(e.getMessage());
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Streams a level file, which is still read in whole up front, but only
+	 * has meshes and collision data for the stretch near the ship.
+	 */
+	public static Level streamLevel(String path)
+	{
+		Level level = loadLevel(path);
+		
+		if (level == null)
+			return null;
+		
+		return streamLevel(new LevelDataSource(level.getData()));
+	}
+	
+	private Level(LevelData data) throws Exception
+	{
+		this(data, null, null);
+	}
+	
+	private Level(LevelData data, LevelStream stream) throws Exception
+	{
+		this(data, stream, null);
+	}
+	
+	private Level(LevelCache.Entry entry) throws Exception
+	{
+		this(entry.data, null, entry);
+	}
+	
+	private Level(LevelData data, LevelStream stream, LevelCache.Entry cached) throws Exception
 	{		
-		Scanner reader = new Scanner(stream);
-		panels = new ArrayList<Panel>();
-		endMarker = (Cube)new Cube().setScale(2, 2, 2).setOrigin(-1f, -1f, 0).setColor(0xff0000ff);
+		this.data = data;
+		this.stream = stream;
+		this.cached = cached;
+		
+		gravity = data.getGravity(); 
+		airLoss = data.getAirLoss(); 
+		fuelLoss = data.getFuelLoss();
+		deathHeight = data.getDeathHeight();
 		
-		gravity = DEFAULT_GRAVITY; 
-		airLoss = DEFAULT_AIRLOSS; 
-		fuelLoss = DEFAULT_FUELLOSS;
-		deathHeight = DEFAULT_DEATHHEIGHT;
+		start = data.getStart();
+		finish = data.getFinish();
 		
-		String line;
-		while (reader.hasNext())
+		if (start == null)
+			start = DEFAULT_START;
+		
+		if (stream != null)
 		{
-			line = reader.nextLine();
-			
-			//System.out.println("processing - " + line);
-			if (line.startsWith("p"))
-			{
-				Panel temp = makePanel(line);
-				if (temp != null)
-					panels.add(temp);
-			}
+			// Streamed levels don't need a finish, they can go on forever.
+			length = (finish != null) ? finish[DISTANCE] - start[DISTANCE] : Float.POSITIVE_INFINITY;
 			
-			if (line.startsWith("env"))
-				defineEnvironment(line);
+			drawOrder = new int[0];
+			drawDist = new int[0];
 			
-			if (line.startsWith("s"))
-				start = setMarker(line);
+			stream.setStart(start[DISTANCE]);
+			stream.advance(start[DISTANCE]);
 			
-			if (line.startsWith("e"))
-				finish = setMarker(line);
+			return;
 		}
 		
-		reader.close();
-		
-		if (start == null)
-			start = DEFAULT_START;
-		
 		if (finish == null)
 			throw new Exception("There is no end to this level, it is unwinnable.");
 		
 		// just the Z difference
 		length = finish[DISTANCE] - start[DISTANCE];
 		
-		endMarker.setLocation(finish[0], finish[1], finish[2]);
+		if (cached != null)
+		{
+			index = cached.index;
+			drawOrder = cached.drawOrder;
+			drawDist = cached.drawDist;
+			maxPanelLength = cached.maxPanelLength;
+			return;
+		}
+		
+		index = data.makeIndex();
+		
+		sortPanels();
 	}
 	
-	private float[] setMarker(String line)
+	private void sortPanels()
 	{
-		String[] param = line.split("\\s+");
-
-		float[] s = new float[3];
+		int count = data.getPanelCount();
 		
-		try
+		// Distance in the high word and id in the low one, so equal distances
+		// keep the order they were defined in.
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++)
+			keys[i] = ((long)data.getDistance(i) << 32) | i;
+		
+		Arrays.sort(keys);
+		
+		drawOrder = new int[count];
+		drawDist = new int[count];
+		maxPanelLength = 0;
+		
+		for (int k = 0; k < count; k++)
 		{
-			s[0] = Integer.parseInt(param[1]);
-			s[1] = Integer.parseInt(param[2]);
-			s[2] = Integer.parseInt(param[3]);
-			
-			return s;
+			drawOrder[k] = (int)keys[k];
+			drawDist[k] = data.getDistance(drawOrder[k]);
+			maxPanelLength = Math.max(maxPanelLength, data.getLength(drawOrder[k]));
 		}
-		catch (NumberFormatException e)
-		{
-			System.out.println("Incorrectly formatted marker position. All values must be integers.");
-			return null;
-		}		
 	}
 	
-	private void defineEnvironment(String line)
+	private void createMeshes()
 	{
-		//System.out.println("Redefining environment");
+		LevelCache.freeEvicted();
 		
-		String[] param = line.split("\\s+");
-		
-		try
-		{
-			gravity = Integer.parseInt(param[1]);
-			airLoss = Integer.parseInt(param[2]);
-			fuelLoss = Integer.parseInt(param[3]);
-			deathHeight = Integer.parseInt(param[4]);
-			
-			//System.out.println(gravity + "  " + airLoss + "  " + fuelLoss);
-		}
-		catch (NumberFormatException e)
+		if (renderMode == PanelRenderMode.BATCHED)
+			batch = (cached != null) ? cached.makeBatch() : new PanelBatch(data, drawOrder);
+		else if (renderMode == PanelRenderMode.INSTANCED)
+			instances = new PanelInstances(data, drawOrder);
+		else
 		{
-			System.out.println(	"Level environment parameters are not in appropriate formats."+
-								"Gravity, Air Loss rate, and Fuel Loss rate should be integers.");
+			panels = new ArrayList<Panel>(data.getPanelCount());
 			
+			for (int i : drawOrder)
+				panels.add(data.makePanel(i));
 		}
-		catch (IndexOutOfBoundsException e)
+		
+		createEndMarker();
+	}
+	
+	private void createEndMarker()
+	{
+		if (endMarker == null && finish != null)
 		{
-			System.out.println("Level environment definition incomplete. Using defaults for undefined parameters.");
+			endMarker = (Cube)new Cube().setScale(2, 2, 2).setOrigin(-1f, -1f, 0).setColor(0xff0000ff);
+			endMarker.setLocation(finish[0], finish[1], finish[2]);
 		}
 	}
 	
-	private Panel makePanel(String line)
+	private void freePanelMeshes()
 	{
-		String[] param = line.split("\\s+");
+		if (panels != null)
+			for (Panel p : panels)
+				p.free();
 		
-		//System.out.println("making panel - " + Arrays.toString(param));
+		if (batch != null)
+			batch.free();
 		
-		try
+		if (instances != null)
+			instances.free();
+		
+		panels = null;
+		batch = null;
+		instances = null;
+	}
+	
+	/**
+	 * Chooses how panels are drawn. Meshes built for the previous mode are
+	 * freed, and the new ones are built on the next render.
+	 */
+	public void setRenderMode(PanelRenderMode mode)
+	{
+		if (mode == renderMode)
+			return;
+		
+		freePanelMeshes();
+		renderMode = mode;
+	}
+	
+	public PanelRenderMode getRenderMode()
+	{
+		return renderMode;
+	}
+	
+	/**
+	 * Sets how far along the course the ship is, for the draw distance.
+	 */
+	public void setDepth(float depth)
+	{
+		this.depth = depth;
+	}
+	
+	/**
+	 * Limits drawing to panels no further than the given distance ahead of
+	 * the depth. 0 draws everything up to the camera's far plane.
+	 */
+	public void setDrawDistance(float distance)
+	{
+		drawDistance = (distance > 0) ? distance : 0;
+	}
+	
+	public float getDrawDistance()
+	{
+		return drawDistance;
+	}
+	
+	/**
+	 * Tells a streamed level where the ship is, so it can load what's ahead
+	 * and drop what's behind. Call every update; it never blocks.
+	 */
+	public void advance(float distance)
+	{
+		if (stream != null)
+			stream.advance(distance);
+	}
+	
+	/**
+	 * Waits for the segments a streamed level has asked for, up to the
+	 * timeout. For starting a level, not for the update loop.
+	 */
+	public boolean awaitLoaded(long timeoutMillis)
+	{
+		return (stream == null) || stream.awaitLoaded(timeoutMillis);
+	}
+	
+	public boolean isStreamed()
+	{
+		return stream != null;
+	}
+	
+	public LevelStream getStream()
+	{
+		return stream;
+	}
+	
+	public void render()
+	{
+		if (stream != null)
 		{
-			int horzPos = Integer.parseInt(param[1]);
-			int distance = Integer.parseInt(param[2]);
-			int altitude = Integer.parseInt(param[3]);
-			
-			int l = Integer.parseInt(param[4]);
-			int w = Integer.parseInt(param[5]);
-			int h = Integer.parseInt(param[6]);
-
-			String type = param[7];
-			
-			float[] color = null;
-			if (param.length == 12)
-			{
-				color = new float[4];
-				color[0] = Float.parseFloat(param[8]);
-				color[1] = Float.parseFloat(param[9]);
-				color[2] = Float.parseFloat(param[10]);
-				color[3] = Float.parseFloat(param[11]);
-			}
-			
-			return new Panel(horzPos,distance,altitude,l,w,h,type,color);
+			renderStreamed();
+			return;
 		}
-		catch (NumberFormatException e)
+		
+		if (panels == null && batch == null && instances == null)
+			createMeshes();
+		
+		Camera camera = Camera.getGlobal();
+		
+		if (camera != null)
 		{
-			System.out.println("Panel parameter incorrectly formatted. Make sure all position/dimensions are integers, and all color values are floats.");
-			return null;
+			camera.getViewProjection(viewProj);
+			viewProj.invert(invViewProj).frustumAabb(frustumMin, frustumMax);
+			frustum.set(viewProj);
+			
+			float far = frustumMax.y;
+			if (drawDistance > 0)
+				far = Math.min(far, depth + drawDistance);
+			
+			updateVisible(frustumMin.y, far);
 		}
-		catch (IndexOutOfBoundsException e)
+		else
 		{
-			System.out.println("Not enough parameters to build a minimally defined panel. Make sure you define position, dimensions, and type at the least.");
-			return null;
+			firstVisible = 0;
+			lastVisible = drawOrder.length;
 		}
-		catch (Exception e)
+		
+		int count = lastVisible - firstVisible;
+		
+		if (batch != null)
+			batch.render(firstVisible, count);
+		else if (instances != null)
+			instances.render(firstVisible, count);
+		else
 		{
-			System.out.println("I legit have no idea what happened.");
-			e.printStackTrace();
-			return null;
+			for (int k = firstVisible; k < lastVisible; k++)
+			{
+				Panel p = panels.get(k);
+				
+				if (camera == null || frustum.testAab(p.getHorzPos(), p.getDistance(), p.getAltitude()-p.getHeight(),
+						p.getHorzPos()+p.getWidth(), p.getDistance()+p.getLength(), p.getAltitude()))
+					p.render();
+			}
 		}
+		
+		endMarker.render();
 	}
 	
-	public void render()
+	private void renderStreamed()
 	{
-		for (Panel p : panels)
+		createEndMarker();
+		
+		float near = Float.NEGATIVE_INFINITY;
+		float far = Float.POSITIVE_INFINITY;
+		
+		Camera camera = Camera.getGlobal();
+		
+		if (camera != null)
 		{
-			//int d = p.getDistance();
+			camera.getViewProjection(viewProj);
+			viewProj.invert(invViewProj).frustumAabb(frustumMin, frustumMax);
 			
-			//if (d < depth + DRAW_DISTANCE)
-				//if (depth <= d || depth <= d+p.getLength())
-					p.render();
+			near = frustumMin.y;
+			far = frustumMax.y;
 		}
 		
-		endMarker.render();
+		if (drawDistance > 0)
+			far = Math.min(far, depth + drawDistance);
+		
+		stream.render(near, far);
+		
+		if (endMarker != null)
+			endMarker.render();
+	}
+	
+	/**
+	 * Moves the visible run of panels to cover distances near to far. The run
+	 * only moves as far as the view did since the last frame.
+	 */
+	private void updateVisible(float near, float far)
+	{
+		int n = drawDist.length;
+		
+		// Long panels can start well behind the near edge and still reach it.
+		float from = near - maxPanelLength;
+		
+		while (firstVisible > 0 && drawDist[firstVisible-1] >= from)
+			firstVisible--;
+		while (firstVisible < n && drawDist[firstVisible] < from)
+			firstVisible++;
+		
+		while (lastVisible < n && drawDist[lastVisible] <= far)
+			lastVisible++;
+		while (lastVisible > 0 && drawDist[lastVisible-1] > far)
+			lastVisible--;
+		
+		if (lastVisible < firstVisible)
+			lastVisible = firstVisible;
+	}
+	
+	public void free()
+	{
+		freePanelMeshes();
+		LevelCache.freeEvicted();
+		
+		if (stream != null)
+			stream.free();
+		
+		if (endMarker != null)
+			endMarker.free();
+		
+		endMarker = null;
 	}
 		
 	public float[] getStart()
@@ -259,19 +515,47 @@ public class Level
 		return length;
 	}
 		
-	public Panel isColliding(float[] pos)
+	public LevelData getData()
 	{
-		for (Panel panel : panels)
-		{
-			if (panel.isColliding(pos))
-				return panel;
-		}
+		return data;
+	}
+	
+	/**
+	 * Finds the panel containing the given point, as an index into
+	 * {@link #getData()}, or -1 if the point isn't inside any panel. For a
+	 * streamed level, it's only a handle for {@link #getPanelAltitude(int)}
+	 * and {@link #getPanelDistance(int)}, good until the next
+	 * {@link #advance(float)}.
+	 */
+	public int findPanel(float[] pos)
+	{
+		if (stream != null)
+			return stream.findPanel(pos);
 		
-		return null;
+		return index.find(pos);
+	}
+	
+	/**
+	 * The altitude of a panel returned by {@link #findPanel(float[])}.
+	 */
+	public int getPanelAltitude(int panel)
+	{
+		return (stream != null) ? stream.getAltitude(panel) : data.getAltitude(panel);
+	}
+	
+	/**
+	 * The distance of a panel returned by {@link #findPanel(float[])}.
+	 */
+	public int getPanelDistance(int panel)
+	{
+		return (stream != null) ? stream.getDistance(panel) : data.getDistance(panel);
 	}
 	
 	public boolean atEnd(float[] pos)
 	{
+		if (finish == null)
+			return false;
+		
 		return 	(pos[0] < finish[0]+1 && pos[0] > finish[0]-1) &&
 				(pos[1] < finish[1]+1 && pos[1] > finish[1]-1) &&
 				(pos[2] < finish[2]+2 && pos[2] > finish[2]);
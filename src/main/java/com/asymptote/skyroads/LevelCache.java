@@ -0,0 +1,324 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Levels already loaded, keyed by a hash of the file's contents, so loading
+ * the same course again (a retry, or going back to one played before) skips
+ * reading, parsing, indexing and sorting it. An identical file under another
+ * name is the same entry; an edited file is a new one. A text level and its
+ * compiled file differ byte for byte, so they're cached apart.
+ *
+ * Each entry keeps the panel data, the collision index and the draw order,
+ * which the levels made from it share and never change. Once one of them is
+ * drawn batched, the entry keeps the batched mesh on the GPU too, and later
+ * levels draw from the same buffers.
+ *
+ * Entries are dropped least recently used first once they take more than the
+ * budget. Dropping one never takes anything from a level still using it: the
+ * CPU side just goes when nothing refers to it, and the buffers, being
+ * shared, are only deleted once the last level drawing from them is freed.
+ */
+public class LevelCache
+{
+	public static final long DEFAULT_BUDGET = 64L << 20;
+
+	// Bytes of a file hashed at a time.
+	private static final int HASH_BUFFER = 1 << 16;
+
+	// Most recently used last.
+	private static LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	// Each path's key, and the size and time the file had when it was hashed,
+	// so an unchanged file isn't read again just to hash it.
+	private static Map<Path, Stamp> stamps = new HashMap<Path, Stamp>();
+
+	// Meshes of dropped entries, for the render thread to free.
+	private static ConcurrentLinkedQueue<PanelBatch> evicted = new ConcurrentLinkedQueue<PanelBatch>();
+
+	private static long budget = DEFAULT_BUDGET;
+	private static long used;
+
+	private static boolean enabled = true;
+	private static boolean cacheMeshes = true;
+
+	/**
+	 * What's kept of a loaded level.
+	 */
+	public static class Entry
+	{
+		final LevelData data;
+		final PanelIndex index;
+		final int[] drawOrder;
+		final int[] drawDist;
+		final int maxPanelLength;
+
+		// Render thread only. Holds the cache's reference to the shared buffers.
+		private PanelBatch batch;
+
+		private long bytes;
+		private boolean dropped;
+
+		Entry(LevelData data, PanelIndex index, int[] drawOrder, int[] drawDist, int maxPanelLength)
+		{
+			this.data = data;
+			this.index = index;
+			this.drawOrder = drawOrder;
+			this.drawDist = drawDist;
+			this.maxPanelLength = maxPanelLength;
+
+			bytes = data.getByteSize() + index.getByteSize() + (drawOrder.length + drawDist.length)*4L;
+		}
+
+		/**
+		 * A batched mesh of the level's panels in draw order, drawing from
+		 * the entry's buffers, which are uploaded the first time. Call from
+		 * the render thread.
+		 */
+		PanelBatch makeBatch()
+		{
+			synchronized (LevelCache.class)
+			{
+				if (!cacheMeshes || dropped)
+					return new PanelBatch(data, drawOrder);
+
+				PanelBatch shared = batch;
+
+				if (shared == null)
+				{
+					shared = new PanelBatch(data, drawOrder);
+					shared.share();
+					batch = shared;
+
+					long meshBytes = (long)shared.getNumVerts()*shared.getVertexFormat().getStride() + shared.getNumIndices()*4L;
+					bytes += meshBytes;
+					used += meshBytes;
+
+					// Can drop this very entry, but the new batch still holds
+					// the buffers until it's freed.
+					trim();
+				}
+
+				return new PanelBatch(shared.share().acquire(), data.getPanelCount());
+			}
+		}
+
+		public long getByteSize()
+		{
+			return bytes;
+		}
+	}
+
+	private static class Stamp
+	{
+		final long size;
+		final long modified;
+		final String key;
+
+		Stamp(long size, long modified, String key)
+		{
+			this.size = size;
+			this.modified = modified;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The key for a level file: a hash of everything in it.
+	 */
+	public static synchronized String key(String path) throws IOException
+	{
+		Path file = Paths.get(path).toAbsolutePath();
+
+		long size = Files.size(file);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+
+		Stamp stamp = stamps.get(file);
+
+		if (stamp != null && stamp.size == size && stamp.modified == modified)
+			return stamp.key;
+
+		String key = hash(file);
+		stamps.put(file, new Stamp(size, modified, key));
+
+		return key;
+	}
+
+	private static String hash(Path file) throws IOException
+	{
+		MessageDigest digest;
+
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException("No SHA-256 to hash levels with.", e);
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER);
+
+			while (channel.read(buffer) >= 0)
+			{
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+
+		StringBuilder key = new StringBuilder(64);
+
+		for (byte b : digest.digest())
+			key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+
+		return key.toString();
+	}
+
+	/**
+	 * The entry for the key, or null if it isn't cached.
+	 */
+	public static synchronized Entry get(String key)
+	{
+		if (!enabled)
+			return null;
+
+		return entries.get(key);
+	}
+
+	/**
+	 * Caches a newly loaded level under the key. Returns its entry, or null
+	 * if caching is off.
+	 */
+	public static synchronized Entry put(String key, LevelData data, PanelIndex index, int[] drawOrder, int[] drawDist, int maxPanelLength)
+	{
+		if (!enabled)
+			return null;
+
+		Entry entry = new Entry(data, index, drawOrder, drawDist, maxPanelLength);
+
+		drop(entries.put(key, entry));
+
+		used += entry.bytes;
+		trim();
+
+		return entry;
+	}
+
+	/**
+	 * Sets how many bytes the cache can hold, dropping entries to fit.
+	 */
+	public static synchronized void setBudget(long bytes)
+	{
+		budget = Math.max(bytes, 0);
+
+		trim();
+	}
+
+	public static synchronized long getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Roughly how many bytes the cache holds, meshes included.
+	 */
+	public static synchronized long getUsed()
+	{
+		return used;
+	}
+
+	public static synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Turns caching off (or on again). Turning it off drops everything.
+	 */
+	public static synchronized void setEnabled(boolean enable)
+	{
+		enabled = enable;
+
+		if (!enabled)
+			clear();
+	}
+
+	public static synchronized boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Whether batched meshes are kept on the GPU along with the rest.
+	 */
+	public static synchronized void setCacheMeshes(boolean cache)
+	{
+		cacheMeshes = cache;
+	}
+
+	/**
+	 * Drops every entry.
+	 */
+	public static synchronized void clear()
+	{
+		for (Entry entry : entries.values())
+			drop(entry);
+
+		entries.clear();
+		stamps.clear();
+	}
+
+	/**
+	 * Frees the meshes of dropped entries. Call from the render thread.
+	 */
+	public static void freeEvicted()
+	{
+		PanelBatch batch;
+		while ((batch = evicted.poll()) != null)
+			batch.free();
+	}
+
+	// Drops the least recently used entries until there's room. One entry
+	// bigger than the whole budget is still kept, so it isn't loaded twice
+	// in a row.
+	private static void trim()
+	{
+		Iterator<Entry> it = entries.values().iterator();
+
+		while (used > budget && entries.size() > 1 && it.hasNext())
+		{
+			drop(it.next());
+			it.remove();
+		}
+	}
+
+	private static void drop(Entry entry)
+	{
+		if (entry == null || entry.dropped)
+			return;
+
+		entry.dropped = true;
+		used -= entry.bytes;
+
+		if (entry.batch != null)
+			evicted.add(entry.batch);
+
+		entry.batch = null;
+	}
+}
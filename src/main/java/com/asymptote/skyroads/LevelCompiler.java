@@ -0,0 +1,48 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Converts a text level into the compiled format read by {@link LevelFile}.
+ *
+ * Usage: LevelCompiler input [output]
+ *
+ * If no output is given, the compiled level is written next to the input,
+ * with {@link LevelFile#EXTENSION} appended.
+ */
+public class LevelCompiler
+{
+	public static void compile(String input, String output) throws IOException
+	{
+		LevelData data = LevelParser.parse(Paths.get(input));
+		
+		if (data.getFinish() == null)
+			throw new IOException("There is no end to this level, it is unwinnable.");
+		
+		LevelFile.write(data, output);
+		
+		System.out.println("Compiled " + data.getPanelCount() + " panels from " + input + " to " + output);
+	}
+	
+	public static void main(String[] args)
+	{
+		if (args.length < 1 || args.length > 2)
+		{
+			System.out.println("Usage: LevelCompiler input [output]");
+			System.exit(1);
+		}
+		
+		String output = (args.length == 2) ? args[1] : args[0] + LevelFile.EXTENSION;
+		
+		try
+		{
+			compile(args[0], output);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Level could not be compiled: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.asymptote.skyroads;
+
+import java.util.Arrays;
+
+/**
+ * The parsed contents of a level file, with no OpenGL objects attached.
+ * Panels are kept in one packed int table, laid out exactly as in a compiled
+ * level file, so a compiled level can be copied in with a single bulk read.
+ */
+public class LevelData
+{
+	// Layout of one row of the panel table. Colors are stored as raw float bits.
+	public static final int X = 0;
+	public static final int DIST = 1;
+	public static final int ALT = 2;
+	public static final int WIDTH = 3;
+	public static final int LENGTH = 4;
+	public static final int HEIGHT = 5;
+	public static final int FLAGS = 6;
+	public static final int RED = 7;
+	public static final int GREEN = 8;
+	public static final int BLUE = 9;
+	public static final int ALPHA = 10;
+	public static final int PANEL_WORDS = 11;
+
+	// The FLAGS word holds the panel type ordinal, plus a bit for an explicit color.
+	static final int TYPE_MASK = 0xff;
+	private static final int HAS_COLOR = 0x100;
+
+	private static final PanelType[] TYPES = PanelType.values();
+
+	private float gravity = Level.DEFAULT_GRAVITY;
+	private float airLoss = Level.DEFAULT_AIRLOSS;
+	private float fuelLoss = Level.DEFAULT_FUELLOSS;
+	private float deathHeight = Level.DEFAULT_DEATHHEIGHT;
+
+	private float[] start;
+	private float[] finish;
+
+	private int[] panels;
+	private int numPanels;
+
+	public LevelData()
+	{
+		this(16);
+	}
+
+	public LevelData(int capacity)
+	{
+		panels = new int[Math.max(capacity, 1)*PANEL_WORDS];
+	}
+
+	public void setEnvironment(float gravity, float airLoss, float fuelLoss, float deathHeight)
+	{
+		this.gravity = gravity;
+		this.airLoss = airLoss;
+		this.fuelLoss = fuelLoss;
+		this.deathHeight = deathHeight;
+	}
+
+	public void setStart(float[] start)
+	{
+		this.start = start;
+	}
+
+	public void setFinish(float[] finish)
+	{
+		this.finish = finish;
+	}
+
+	public int addPanel(int horzPos, int distance, int altitude, int width, int length, int height, PanelType type, float[] color)
+	{
+		if ((numPanels+1)*PANEL_WORDS > panels.length)
+			panels = Arrays.copyOf(panels, panels.length*2);
+
+		int i = numPanels*PANEL_WORDS;
+		panels[i+X] = horzPos;
+		panels[i+DIST] = distance;
+		panels[i+ALT] = altitude;
+		panels[i+WIDTH] = width;
+		panels[i+LENGTH] = length;
+		panels[i+HEIGHT] = height;
+		panels[i+FLAGS] = type.ordinal() | ((color != null) ? HAS_COLOR : 0);
+
+		if (color != null)
+		{
+			panels[i+RED] = Float.floatToRawIntBits(color[0]);
+			panels[i+GREEN] = Float.floatToRawIntBits(color[1]);
+			panels[i+BLUE] = Float.floatToRawIntBits(color[2]);
+			panels[i+ALPHA] = Float.floatToRawIntBits(color[3]);
+		}
+
+		return numPanels++;
+	}
+
+	/**
+	 * Adds panel i of another level's data to this one.
+	 */
+	public int copyPanel(LevelData from, int i)
+	{
+		if ((numPanels+1)*PANEL_WORDS > panels.length)
+			panels = Arrays.copyOf(panels, panels.length*2);
+
+		System.arraycopy(from.panels, i*PANEL_WORDS, panels, numPanels*PANEL_WORDS, PANEL_WORDS);
+
+		return numPanels++;
+	}
+
+	/**
+	 * Adds all of another level's panels to this one, after its own.
+	 */
+	public void appendPanels(LevelData from)
+	{
+		int words = (numPanels + from.numPanels)*PANEL_WORDS;
+
+		if (words > panels.length)
+			panels = Arrays.copyOf(panels, Math.max(words, panels.length*2));
+
+		System.arraycopy(from.panels, 0, panels, numPanels*PANEL_WORDS, from.numPanels*PANEL_WORDS);
+		numPanels += from.numPanels;
+	}
+
+	/**
+	 * A copy of the environment and markers, without any panels.
+	 */
+	public LevelData copyHeader()
+	{
+		LevelData header = new LevelData(1);
+
+		header.setEnvironment(gravity, airLoss, fuelLoss, deathHeight);
+		header.setStart(start);
+		header.setFinish(finish);
+
+		return header;
+	}
+
+	public Panel makePanel(int i)
+	{
+		return new Panel(getHorzPos(i), getDistance(i), getAltitude(i), getWidth(i), getLength(i), getHeight(i), getType(i), getColor(i));
+	}
+
+	public PanelIndex makeIndex()
+	{
+		PanelIndex index = new PanelIndex();
+
+		for (int i = 0; i < numPanels; i++)
+			index.add(getHorzPos(i), getDistance(i), getAltitude(i), getWidth(i), getLength(i), getHeight(i));
+
+		index.build();
+
+		return index;
+	}
+
+	public int getPanelCount()
+	{
+		return numPanels;
+	}
+
+	/**
+	 * Roughly how much memory the panel table takes.
+	 */
+	public long getByteSize()
+	{
+		return (long)panels.length*4;
+	}
+
+	public int getHorzPos(int i)
+	{
+		return panels[i*PANEL_WORDS+X];
+	}
+
+	public int getDistance(int i)
+	{
+		return panels[i*PANEL_WORDS+DIST];
+	}
+
+	public int getAltitude(int i)
+	{
+		return panels[i*PANEL_WORDS+ALT];
+	}
+
+	public int getWidth(int i)
+	{
+		return panels[i*PANEL_WORDS+WIDTH];
+	}
+
+	public int getLength(int i)
+	{
+		return panels[i*PANEL_WORDS+LENGTH];
+	}
+
+	public int getHeight(int i)
+	{
+		return panels[i*PANEL_WORDS+HEIGHT];
+	}
+
+	public PanelType getType(int i)
+	{
+		return TYPES[panels[i*PANEL_WORDS+FLAGS] & TYPE_MASK];
+	}
+
+	public boolean hasColor(int i)
+	{
+		return (panels[i*PANEL_WORDS+FLAGS] & HAS_COLOR) != 0;
+	}
+
+	/**
+	 * The color the panel was defined with, or null if it didn't have one.
+	 */
+	public float[] getColor(int i)
+	{
+		if (!hasColor(i))
+			return null;
+
+		int p = i*PANEL_WORDS;
+		return new float[] {Float.intBitsToFloat(panels[p+RED]),
+							Float.intBitsToFloat(panels[p+GREEN]),
+							Float.intBitsToFloat(panels[p+BLUE]),
+							Float.intBitsToFloat(panels[p+ALPHA])};
+	}
+
+	public float getGravity()
+	{
+		return gravity;
+	}
+
+	public float getAirLoss()
+	{
+		return airLoss;
+	}
+
+	public float getFuelLoss()
+	{
+		return fuelLoss;
+	}
+
+	public float getDeathHeight()
+	{
+		return deathHeight;
+	}
+
+	public float[] getStart()
+	{
+		return start;
+	}
+
+	public float[] getFinish()
+	{
+		return finish;
+	}
+
+	/**
+	 * The backing panel table, {@link #PANEL_WORDS} ints per panel. Only the
+	 * first {@code getPanelCount()*PANEL_WORDS} entries are in use.
+	 */
+	int[] getPanelTable()
+	{
+		return panels;
+	}
+
+	/**
+	 * Replaces the panel table wholesale, for loaders that read it in bulk.
+	 */
+	void setPanelTable(int[] table, int count)
+	{
+		if (table.length < count*PANEL_WORDS)
+			throw new IllegalArgumentException("Panel table too small for " + count + " panels.");
+
+		panels = table;
+		numPanels = count;
+	}
+}
@@ -0,0 +1,83 @@
+package com.asymptote.skyroads;
+
+import java.util.Arrays;
+
+/**
+ * Streams a level that's already been read in whole, handing out its panels
+ * by distance. Only the level's meshes and collision data are then bounded by
+ * the stream, not the panel table itself.
+ */
+public class LevelDataSource implements SegmentSource
+{
+	private LevelData data;
+
+	// Panel ids sorted by distance, and the distance of each.
+	private int[] order;
+	private int[] dist;
+
+	public LevelDataSource(LevelData data)
+	{
+		this.data = data;
+
+		int count = data.getPanelCount();
+
+		// Distance in the high word and id in the low one, so equal distances
+		// keep the order they were defined in.
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++)
+			keys[i] = ((long)data.getDistance(i) << 32) | i;
+
+		Arrays.sort(keys);
+
+		order = new int[count];
+		dist = new int[count];
+
+		for (int k = 0; k < count; k++)
+		{
+			order[k] = (int)keys[k];
+			dist[k] = data.getDistance(order[k]);
+		}
+	}
+
+	@Override
+	public LevelData getHeader()
+	{
+		return data.copyHeader();
+	}
+
+	@Override
+	public LevelData load(int from, int to)
+	{
+		if (order.length == 0 || from > dist[dist.length-1])
+			return null;
+
+		int first = firstAt(from);
+		int last = firstAt(to);
+
+		LevelData segment = new LevelData(last - first);
+
+		for (int k = first; k < last; k++)
+			segment.copyPanel(data, order[k]);
+
+		return segment;
+	}
+
+	// The first panel in distance order at or beyond the given distance.
+	private int firstAt(int distance)
+	{
+		int lo = 0;
+		int hi = dist.length;
+
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+
+			if (dist[mid] < distance)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		return lo;
+	}
+}
@@ -0,0 +1,154 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes compiled (binary) levels. All values are little endian.
+ *
+ * <pre>
+ * int    magic ("SKYL")
+ * int    version
+ * float  gravity, airLoss, fuelLoss, deathHeight
+ * int    flags (bit 0: has start, bit 1: has finish)
+ * float  start x, distance, altitude
+ * float  finish x, distance, altitude
+ * int    panel count
+ * int[]  panel table, LevelData.PANEL_WORDS ints per panel
+ * </pre>
+ *
+ * Compiled levels are memory mapped and the panel table is copied out in one
+ * bulk read, so loading does no per-panel work at all.
+ */
+public class LevelFile
+{
+	public static final int MAGIC = 0x4C594B53;		// "SKYL" in little endian
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".lvl";
+
+	private static final int HAS_START = 1;
+	private static final int HAS_FINISH = 2;
+
+	private static final int HEADER_SIZE = 4*(2 + 4 + 1 + 3 + 3 + 1);
+
+	public static boolean isCompiled(String path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+
+			while (magic.hasRemaining())
+				if (channel.read(magic) < 0)
+					return false;
+
+			return magic.getInt(0) == MAGIC;
+		}
+	}
+
+	public static LevelData read(String path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size < HEADER_SIZE)
+				throw new IOException("File is too small to be a compiled level.");
+
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			map.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (map.getInt() != MAGIC)
+				throw new IOException("File is not a compiled level.");
+
+			int version = map.getInt();
+			if (version != VERSION)
+				throw new IOException("Compiled level is version " + version + ", expected version " + VERSION + ".");
+
+			LevelData data = new LevelData(0);
+			data.setEnvironment(map.getFloat(), map.getFloat(), map.getFloat(), map.getFloat());
+
+			int flags = map.getInt();
+			float[] start = readMarker(map);
+			float[] finish = readMarker(map);
+
+			if ((flags & HAS_START) != 0)
+				data.setStart(start);
+			if ((flags & HAS_FINISH) != 0)
+				data.setFinish(finish);
+
+			int count = map.getInt();
+			if (count < 0 || (long)count*LevelData.PANEL_WORDS*4 > map.remaining())
+				throw new IOException("Compiled level is truncated, expected " + count + " panels.");
+
+			int[] table = new int[Math.max(count, 1)*LevelData.PANEL_WORDS];
+			map.asIntBuffer().get(table, 0, count*LevelData.PANEL_WORDS);
+
+			// Checked here, or a bad type would only show up once the panel's
+			// collided with or drawn.
+			int types = PanelType.values().length;
+			for (int i = 0; i < count; i++)
+			{
+				int type = table[i*LevelData.PANEL_WORDS + LevelData.FLAGS] & LevelData.TYPE_MASK;
+
+				if (type >= types)
+					throw new IOException("Compiled level has an unknown panel type " + type + " at panel " + i + ".");
+			}
+
+			data.setPanelTable(table, count);
+
+			return data;
+		}
+	}
+
+	public static void write(LevelData data, String path) throws IOException
+	{
+		int words = data.getPanelCount()*LevelData.PANEL_WORDS;
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + words*4).order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+
+		buffer.putFloat(data.getGravity());
+		buffer.putFloat(data.getAirLoss());
+		buffer.putFloat(data.getFuelLoss());
+		buffer.putFloat(data.getDeathHeight());
+
+		int flags = 0;
+		if (data.getStart() != null)
+			flags |= HAS_START;
+		if (data.getFinish() != null)
+			flags |= HAS_FINISH;
+
+		buffer.putInt(flags);
+		writeMarker(buffer, data.getStart());
+		writeMarker(buffer, data.getFinish());
+
+		buffer.putInt(data.getPanelCount());
+		buffer.asIntBuffer().put(data.getPanelTable(), 0, words);
+		buffer.position(buffer.position() + words*4);
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+
+	private static float[] readMarker(ByteBuffer buffer)
+	{
+		return new float[] {buffer.getFloat(), buffer.getFloat(), buffer.getFloat()};
+	}
+
+	private static void writeMarker(ByteBuffer buffer, float[] marker)
+	{
+		for (int i = 0; i < 3; i++)
+			buffer.putFloat((marker != null) ? marker[i] : 0);
+	}
+}
@@ -0,0 +1,42 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+
+/**
+ * A mistake in a text level, and where it is. Lines and columns count from 1.
+ */
+public class LevelFormatException extends IOException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final String reason;
+	private final int line;
+	private final int column;
+
+	public LevelFormatException(String message, int line, int column)
+	{
+		super("Line " + line + ", column " + column + ": " + message);
+
+		this.reason = message;
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * The message, without where.
+	 */
+	public String getReason()
+	{
+		return reason;
+	}
+
+	public int getLine()
+	{
+		return line;
+	}
+
+	public int getColumn()
+	{
+		return column;
+	}
+}
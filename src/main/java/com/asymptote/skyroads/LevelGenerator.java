@@ -0,0 +1,307 @@
+package com.asymptote.skyroads;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Makes up levels from a seed. The course is a grid of rows, each
+ * {@link #ROW_LENGTH} long and {@link #LANES} panels wide, and every row is
+ * worked out on its own from the seed and the row number, so any stretch of
+ * the course can be generated without generating what came before it. Memory
+ * use doesn't depend on how long the course is, and the same seed always
+ * gives the same course.
+ *
+ * One lane of every row is always there, flat and safe, and wanders across
+ * the course a lane at a time; the rest are filled in at random, with raised
+ * panels and special types.
+ *
+ * Panels can be fed to a {@link PanelSink} a row at a time, streamed as a
+ * {@link SegmentSource}, or written out in the text format {@link LevelParser}
+ * reads.
+ */
+public class LevelGenerator implements SegmentSource
+{
+	public static final int ROW_LENGTH = 20;
+	public static final int LANES = 6;
+	public static final int LANE_WIDTH = 10;
+	public static final int FIRST_LANE = -LANES*LANE_WIDTH/2;
+	public static final float DEFAULT_DENSITY = 0.55f;
+
+	// The safe lane picks a new lane to head for this often, in rows. It moves
+	// one lane a row, so this has to be at least LANES.
+	private static final int WAYPOINT_ROWS = 8;
+
+	private static final float[][] PALETTE = {	{0.0f, 1.0f, 0.0f, 1.0f},
+												{0.7f, 0.5f, 0.0f, 1.0f},
+												{1.0f, 0.0f, 0.0f, 1.0f},
+												{0.0f, 0.0f, 1.0f, 1.0f} };
+
+	private static final PanelType[] SPECIALS = { PanelType.HAZARD, PanelType.SUPPLY, PanelType.FASTER,
+												  PanelType.SLOWER, PanelType.SLIPPY };
+
+	// Salts, so the path, and each row's panels, draw on separate streams.
+	private static final long PATH = 0x5041544886L;
+	private static final long ROW = 0x524F5746L;
+
+	/**
+	 * Takes panels as they're generated. {@link LevelData#addPanel} fits.
+	 */
+	public interface PanelSink
+	{
+		void addPanel(int horzPos, int distance, int altitude, int width, int length, int height, PanelType type, float[] color);
+	}
+
+	private final long seed;
+	private final long rows;
+	private float density = DEFAULT_DENSITY;
+
+	/**
+	 * An endless course.
+	 */
+	public LevelGenerator(long seed)
+	{
+		this(seed, 0);
+	}
+
+	/**
+	 * A course of the given number of rows, or endless if 0.
+	 */
+	public LevelGenerator(long seed, long rows)
+	{
+		this.seed = seed;
+		this.rows = Math.max(rows, 0);
+	}
+
+	/**
+	 * The chance of each lane besides the safe one having a panel.
+	 */
+	public LevelGenerator setDensity(float density)
+	{
+		this.density = Math.max(0, Math.min(1, density));
+
+		return this;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public long getRows()
+	{
+		return rows;
+	}
+
+	public boolean isEndless()
+	{
+		return rows == 0;
+	}
+
+	@Override
+	public LevelData getHeader()
+	{
+		LevelData header = new LevelData(1);
+
+		header.setStart(new float[] {laneCenter(safeLane(0)), 0, 0});
+
+		if (!isEndless())
+			header.setFinish(new float[] {laneCenter(safeLane(rows-1)), rows*ROW_LENGTH - ROW_LENGTH/2, 0});
+
+		return header;
+	}
+
+	@Override
+	public LevelData load(int from, int to)
+	{
+		long first = Math.max(0, Math.floorDiv(from + ROW_LENGTH - 1, ROW_LENGTH));
+		long last = Math.floorDiv(to + ROW_LENGTH - 1, ROW_LENGTH);
+
+		if (!isEndless())
+		{
+			if (first >= rows)
+				return null;
+
+			last = Math.min(last, rows);
+		}
+
+		LevelData data = new LevelData((int)Math.max(last - first, 1)*LANES);
+
+		generate(first, last, data::addPanel);
+
+		return data;
+	}
+
+	/**
+	 * Generates rows first (inclusive) to last (exclusive), in order.
+	 */
+	public void generate(long first, long last, PanelSink sink)
+	{
+		if (!isEndless())
+			last = Math.min(last, rows);
+
+		for (long r = Math.max(first, 0); r < last; r++)
+			generateRow(r, sink);
+	}
+
+	/**
+	 * Writes the whole course in the text level format, a row at a time.
+	 */
+	public void write(Writer out) throws IOException
+	{
+		if (isEndless())
+			throw new IOException("An endless level can't be written out.");
+
+		LevelData header = getHeader();
+		float[] start = header.getStart();
+		float[] finish = header.getFinish();
+
+		StringBuilder line = new StringBuilder(64);
+
+		line.append("env ").append((int)header.getGravity()).append(' ').append((int)header.getAirLoss()).append(' ')
+			.append((int)header.getFuelLoss()).append(' ').append((int)header.getDeathHeight()).append('\n');
+		line.append("s ").append((int)start[0]).append(' ').append((int)start[1]).append(' ').append((int)start[2]).append('\n');
+		line.append("e ").append((int)finish[0]).append(' ').append((int)finish[1]).append(' ').append((int)finish[2]).append('\n');
+		out.append(line);
+
+		IOException[] failed = new IOException[1];
+
+		PanelSink text = (x, dist, alt, width, length, height, type, color) ->
+		{
+			line.setLength(0);
+			line.append("p ").append(x).append(' ').append(dist).append(' ').append(alt).append(' ')
+				.append(width).append(' ').append(length).append(' ').append(height).append(' ')
+				.append(type.name().toLowerCase());
+
+			if (color != null)
+				for (float c : color)
+					line.append(' ').append(c);
+
+			line.append('\n');
+
+			try
+			{
+				out.append(line);
+			}
+			catch (IOException e)
+			{
+				failed[0] = e;
+			}
+		};
+
+		for (long r = 0; r < rows && failed[0] == null; r++)
+			generateRow(r, text);
+
+		if (failed[0] != null)
+			throw failed[0];
+
+		out.flush();
+	}
+
+	private void generateRow(long r, PanelSink sink)
+	{
+		long state = mix(seed ^ mix(r ^ ROW));
+		int safe = safeLane(r);
+		int dist = (int)(r*ROW_LENGTH);
+
+		for (int lane = 0; lane < LANES; lane++)
+		{
+			state = mix(state);
+			float roll = unit(state);
+
+			int x = FIRST_LANE + lane*LANE_WIDTH;
+
+			if (lane == safe)
+			{
+				// Flat, and never anything that hurts.
+				PanelType type = (roll < 0.9f) ? PanelType.NORMAL : (roll < 0.95f) ? PanelType.SUPPLY : PanelType.FASTER;
+				sink.addPanel(x, dist, 0, LANE_WIDTH, ROW_LENGTH, 1, type, color(type, state));
+				continue;
+			}
+
+			if (roll >= density)
+				continue;
+
+			state = mix(state);
+			int altitude = (int)(unit(state)*8) - 4;
+			altitude = (altitude > 0) ? altitude : 0;
+
+			state = mix(state);
+			PanelType type = (unit(state) < 0.75f) ? PanelType.NORMAL : SPECIALS[(int)((state >>> 1) % SPECIALS.length)];
+
+			sink.addPanel(x, dist, altitude, LANE_WIDTH, ROW_LENGTH, 1, type, color(type, state));
+		}
+	}
+
+	/**
+	 * The lane of row r that's always there.
+	 */
+	public int safeLane(long r)
+	{
+		long k = Math.floorDiv(r, WAYPOINT_ROWS);
+		long t = r - k*WAYPOINT_ROWS;
+
+		int from = waypoint(k);
+		int to = waypoint(k+1);
+
+		return from + (int)(Integer.signum(to - from)*Math.min(Math.abs(to - from), t));
+	}
+
+	private int waypoint(long k)
+	{
+		return (int)((mix(seed ^ mix(k ^ PATH)) >>> 1) % LANES);
+	}
+
+	private static float laneCenter(int lane)
+	{
+		return FIRST_LANE + lane*LANE_WIDTH + LANE_WIDTH/2;
+	}
+
+	private static float[] color(PanelType type, long state)
+	{
+		if (type != PanelType.NORMAL)
+			return null;
+
+		return PALETTE[(int)((state >>> 33) % PALETTE.length)];
+	}
+
+	// SplitMix64's finalizer.
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static float unit(long state)
+	{
+		return (state >>> 40) / (float)(1L << 24);
+	}
+
+	/**
+	 * Usage: LevelGenerator seed rows output
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length != 3)
+		{
+			System.out.println("Usage: LevelGenerator seed rows output");
+			System.exit(1);
+		}
+
+		LevelGenerator generator = new LevelGenerator(Long.parseLong(args[0]), Long.parseLong(args[1]));
+
+		try (Writer out = new BufferedWriter(new FileWriter(args[2]), 1 << 16))
+		{
+			generator.write(out);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Level could not be written: " + e.getMessage());
+			System.exit(1);
+		}
+
+		System.out.println("Wrote " + generator.getRows() + " rows to " + args[2]);
+	}
+}
@@ -0,0 +1,327 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads the plain text level format. Each line is one of:
+ *
+ * <pre>
+ * env gravity airLoss fuelLoss deathHeight
+ * s   x distance altitude
+ * e   x distance altitude
+ * p   x distance altitude width length height type [r g b a]
+ * </pre>
+ *
+ * Blank lines and anything after a '#' are ignored. Environment values left
+ * off the end keep their defaults. Mistakes are thrown as a
+ * {@link LevelFormatException} saying where they are.
+ *
+ * Big files are cut into pieces at line breaks and the pieces parsed at once
+ * on a {@link ForkJoinPool}. Every line stands alone, so the pieces' panels
+ * just go one after another, and the few env, s and e lines are applied in
+ * file order afterwards. The result is the same as reading it all in one go.
+ */
+public class LevelParser
+{
+	// Files smaller than this are parsed on the calling thread.
+	public static final int PARALLEL_SIZE = 1 << 20;
+
+	// Smallest piece worth handing to another thread.
+	private static final int MIN_CHUNK = 1 << 18;
+
+	// Pieces per thread, so a slow one doesn't hold the rest up.
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final int ENVIRONMENT = 0;
+	private static final int START = 1;
+	private static final int FINISH = 2;
+	private static final int PANEL = 3;
+
+	private static final byte[][] KEYWORDS = { LevelTokenizer.word("env"), LevelTokenizer.word("s"),
+											   LevelTokenizer.word("e"), LevelTokenizer.word("p") };
+
+	private static final byte[][] TYPES = new byte[PanelType.values().length][];
+
+	static
+	{
+		for (PanelType type : PanelType.values())
+			TYPES[type.ordinal()] = LevelTokenizer.word(type.name());
+	}
+
+	public static LevelData parse(InputStream stream) throws IOException
+	{
+		return parse(Channels.newChannel(stream));
+	}
+
+	public static LevelData parse(ReadableByteChannel channel) throws IOException
+	{
+		LevelData data = new LevelData();
+
+		parse(new LevelTokenizer(channel), data, null);
+
+		return data;
+	}
+
+	/**
+	 * Reads a level file, mapping it into memory and parsing it in parallel if
+	 * it's big enough.
+	 */
+	public static LevelData parse(Path path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+
+			if (size < PARALLEL_SIZE || size > Integer.MAX_VALUE)
+				return parse(channel);
+
+			return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	/**
+	 * Parses the text from the buffer's position to its limit, on the common
+	 * pool.
+	 */
+	public static LevelData parse(ByteBuffer text) throws IOException
+	{
+		return parse(text, ForkJoinPool.commonPool());
+	}
+
+	public static LevelData parse(ByteBuffer text, ForkJoinPool pool) throws IOException
+	{
+		text = text.slice();
+
+		int size = text.limit();
+		int chunks = Math.min(pool.getParallelism()*CHUNKS_PER_THREAD, size/MIN_CHUNK);
+
+		if (size < PARALLEL_SIZE || chunks < 2)
+		{
+			LevelData data = new LevelData();
+			parse(new LevelTokenizer(text), data, null);
+			return data;
+		}
+
+		Chunk[] tasks = new Chunk[chunks];
+		int start = 0;
+
+		for (int c = 0; c < chunks; c++)
+		{
+			int end = (c == chunks-1) ? size : nextLine(text, Math.max(start, (int)((long)size*(c+1)/chunks)));
+
+			tasks[c] = new Chunk(text, start, end);
+			pool.execute(tasks[c]);
+
+			start = end;
+		}
+
+		int panels = 0;
+
+		// In file order, so the error thrown is the first one in the file.
+		for (int c = 0; c < chunks; c++)
+		{
+			Chunk task = tasks[c];
+			task.join();
+
+			if (task.error != null)
+			{
+				for (int rest = c+1; rest < chunks; rest++)
+					tasks[rest].cancel(false);
+
+				throw task.relocate();
+			}
+
+			panels += task.data.getPanelCount();
+		}
+
+		LevelData data = new LevelData(panels);
+
+		for (Chunk task : tasks)
+		{
+			data.appendPanels(task.data);
+
+			for (int[] record : task.records)
+				apply(record, data);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Reads every record left in the tokenizer. Panels go into data; env, s
+	 * and e records are applied to it too, or kept in records for later if
+	 * that's given.
+	 */
+	static void parse(LevelTokenizer in, LevelData data, List<int[]> records) throws IOException
+	{
+		PanelType[] types = PanelType.values();
+		float[] color = new float[4];
+
+		while (in.nextRecord())
+		{
+			int keyword = in.readWord(KEYWORDS, "record");
+
+			if (keyword == PANEL)
+			{
+				int horzPos = in.readInt("panel x");
+				int distance = in.readInt("panel distance");
+				int altitude = in.readInt("panel altitude");
+				int width = in.readInt("panel width");
+				int length = in.readInt("panel length");
+				int height = in.readInt("panel height");
+
+				PanelType type = types[in.readWord(TYPES, "panel type")];
+
+				boolean colored = !in.atRecordEnd();
+				if (colored)
+					for (int c = 0; c < 4; c++)
+						color[c] = in.readFloat("panel color");
+
+				// addPanel copies the color, so the one array does for all.
+				data.addPanel(horzPos, distance, altitude, width, length, height, type, colored ? color : null);
+			}
+			else
+			{
+				int[] record = (keyword == ENVIRONMENT) ? readEnvironment(in) : readMarker(in, keyword);
+
+				if (records != null)
+					records.add(record);
+				else
+					apply(record, data);
+			}
+
+			in.endRecord();
+		}
+	}
+
+	// Records are the keyword, then the numbers given.
+	private static int[] readMarker(LevelTokenizer in, int keyword) throws IOException
+	{
+		return new int[] {keyword, in.readInt("marker x"), in.readInt("marker distance"), in.readInt("marker altitude")};
+	}
+
+	private static int[] readEnvironment(LevelTokenizer in) throws IOException
+	{
+		String[] names = {"gravity", "air loss", "fuel loss", "death height"};
+		int[] values = new int[names.length];
+		int count = 0;
+
+		while (count < names.length && !in.atRecordEnd())
+		{
+			values[count] = in.readInt(names[count]);
+			count++;
+		}
+
+		int[] record = new int[count+1];
+		record[0] = ENVIRONMENT;
+		System.arraycopy(values, 0, record, 1, count);
+
+		return record;
+	}
+
+	private static void apply(int[] record, LevelData data)
+	{
+		switch (record[0])
+		{
+			case ENVIRONMENT:
+				float gravity = (record.length > 1) ? record[1] : data.getGravity();
+				float airLoss = (record.length > 2) ? record[2] : data.getAirLoss();
+				float fuelLoss = (record.length > 3) ? record[3] : data.getFuelLoss();
+				float deathHeight = (record.length > 4) ? record[4] : data.getDeathHeight();
+
+				data.setEnvironment(gravity, airLoss, fuelLoss, deathHeight);
+				break;
+
+			case START:
+				data.setStart(new float[] {record[1], record[2], record[3]});
+				break;
+
+			case FINISH:
+				data.setFinish(new float[] {record[1], record[2], record[3]});
+				break;
+		}
+	}
+
+	// The index just past the next line break at or after i.
+	private static int nextLine(ByteBuffer text, int i)
+	{
+		int size = text.limit();
+
+		while (i < size && text.get(i) != '\n')
+			i++;
+
+		return Math.min(i+1, size);
+	}
+
+	/**
+	 * One piece of a file, parsed on its own.
+	 */
+	private static class Chunk extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		// Rough bytes per panel line, to size the table up front.
+		private static final int BYTES_PER_PANEL = 32;
+
+		final ByteBuffer text;
+		final int start;
+		final int end;
+
+		LevelData data;
+		List<int[]> records = new ArrayList<int[]>();
+		IOException error;
+
+		Chunk(ByteBuffer text, int start, int end)
+		{
+			this.text = text;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			ByteBuffer piece = text.duplicate();
+			piece.limit(end).position(start);
+
+			data = new LevelData((end - start)/BYTES_PER_PANEL);
+
+			try
+			{
+				parse(new LevelTokenizer(piece), data, records);
+			}
+			catch (IOException e)
+			{
+				error = e;
+			}
+		}
+
+		// The error, with its line counted from the start of the file rather
+		// than the piece.
+		IOException relocate()
+		{
+			if (!(error instanceof LevelFormatException))
+				return error;
+
+			LevelFormatException e = (LevelFormatException)error;
+			int lines = 0;
+
+			for (int i = 0; i < start; i++)
+				if (text.get(i) == '\n')
+					lines++;
+
+			return new LevelFormatException(e.getReason(), e.getLine() + lines, e.getColumn());
+		}
+	}
+}
@@ -5,16 +5,16 @@ import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.glClear;
 import static com.asymptote.gamelib.graphics.Utils.*;
 
-import java.util.Arrays;
-import java.util.IllegalFormatCodePointException;
-import java.util.List;
-
 import com.asymptote.gamelib.core.Camera;
+import com.asymptote.gamelib.core.Clock;
 import com.asymptote.gamelib.core.Input;
 import com.asymptote.gamelib.core.Scene;
+import com.asymptote.gamelib.core.SnapshotBuffer;
 import com.asymptote.gamelib.graphics.FrameBuffer;
+import com.asymptote.gamelib.graphics.GPUProfiler;
 import com.asymptote.gamelib.graphics.Shader;
 import com.asymptote.gamelib.graphics.ShaderProgram;
+import com.asymptote.gamelib.graphics.Uniform;
 import com.asymptote.gamelib.primitives.FrameQuad;
 
 public class LevelScene implements Scene
@@ -24,19 +24,20 @@ public class LevelScene implements Scene
 	
 	private ShaderProgram baseProg;
 	private ShaderProgram textProg;
+	private Uniform textTexture;
+	
+	private GPUProfiler.Pass hudPass = GPUProfiler.pass("hud");
+	private GPUProfiler.Pass levelPass = GPUProfiler.pass("level");
+	private GPUProfiler.Pass compositePass = GPUProfiler.pass("composite");
 	
 	private Camera camera;
 	private FrameBuffer fbo;
 	private FrameQuad fQuad;
 	
-	private Level level;
-	private Ship ship;
-	
-	private Player player;
+	private LevelSimulation sim;
 	private LevelSceneUI hud;
 	
-	private float lastDist;
-	private float deltaDist;	
+	private SnapshotBuffer<LevelSnapshot> snapshots = new SnapshotBuffer<LevelSnapshot>(LevelSnapshot::new);
 	
 	private boolean isFinished;
 	private int width;
@@ -49,6 +50,7 @@ public class LevelScene implements Scene
 		
 		baseProg = new ShaderProgram("src/main/glsl/basic.vert", "src/main/glsl/basic.frag");		
 		textProg = new ShaderProgram("src/main/glsl/fbo.vert", "src/main/glsl/texture.frag");
+		textTexture = textProg.getUniform("mytexture");
 
 		camera = new Camera();
 		camera.setFrustum(width, height, 60, 0.1f, 500.0f);		// depth buffering borks if zNear == 0
@@ -56,6 +58,7 @@ public class LevelScene implements Scene
 		fQuad = (FrameQuad) new FrameQuad();
 		
 		hud = new LevelSceneUI(width, height);
+		sim = new LevelSimulation();
 	}
 
 	public int width()
@@ -72,205 +75,161 @@ public class LevelScene implements Scene
 	{
 		camera.setFrustum(width, height, 60, 0.1f, 500.0f);		// depth buffering borks if zNear == 0
 		fbo = new FrameBuffer(width, height, true);
+		hud.invalidate();
 	}
 	
 	public void handleInput(Input input, boolean active)
 	{
-		if (input == Input.LEFT)
-			ship.moveLeft(active);
-		if (input == Input.RIGHT)
-			ship.moveRight(active);
-		if (input == Input.UP)
-			ship.accelerate(active);
-		if (input == Input.DOWN)
-			ship.decelerate(active);
-		
-		if (input == Input.JUMP)
-		{
-			if (active)
-				ship.thrust();
-			
-			if (!active)
-				ship.rising(false);
-		}
-		
-		if (input == Input.RESTART && active)
-		{
-			reset();
-			ship.setPosition(level.getStart());
-		}
-		if (input == Input.RESET && active)
-		{
-			reset();
-			ship.setPosition(0,0,10);
-		}	
+		sim.handleInput(input, active);
 	}
 	
 	public void startScene()
 	{
-		float[] start = level.getStart();
+		sim.startScene();
 		
-		ship.setPosition(start);
-		
-		lastDist = start[1];
-		deltaDist = 0;
+		float[] start = sim.getLevel().getStart();
 		
 		//System.out.println(Arrays.toString(start));
 		
-		camera.moveTo(start[0], lastDist+C_DIST_OFFSET, start[2]+C_ALT_OFFSET);
+		camera.moveTo(start[0], start[1]+C_DIST_OFFSET, start[2]+C_ALT_OFFSET);
 		camera.lookAt(start[0], start[1], start[2], 0, 0, 1);
 		
-		player.reset();
+		snapshots.getBack().capture(sim);
+		snapshots.reset(Clock.now());
 	}
 	
 	public void setShip(Ship ship)
 	{
-		this.ship = ship;
+		sim.setShip(ship);
 		
-		if (level != null)
-		{
-			ship.setGravity(level.getGravityFactor());
-
-			player = new Player(ship,this.level);
-			hud.watchPlayer(player);
-		}
+		if (sim.getPlayer() != null)
+			hud.watchPlayer(sim.getPlayer());
 	}
 	
 	public void setLevel(Level level)
 	{
-		this.level = level;		
+		sim.setLevel(level);
 		
-		if (ship != null)
-		{
-			ship.setGravity(level.getGravityFactor());
-
-			player = new Player(ship,this.level);
-			hud.watchPlayer(player);
-		}
+		if (sim.getPlayer() != null)
+			hud.watchPlayer(sim.getPlayer());
+	}
+	
+	public LevelSimulation getSimulation()
+	{
+		return sim;
 	}
 	
 	public void reset()
 	{
-		ship.reset();
-		ship.setPosition(level.getStart());
-		
-		player.reset();
+		sim.reset();
 	}
 	
 	@Override
 	public void update(double delta)
 	{
-		//System.out.println(ship.getAltitude() + "  " + level.getDeathHeight());
+		sim.update(delta);
+	}
+	
+	/**
+	 * Makes the state after the last update available to {@link #render(double)},
+	 * as the state at the given {@link Clock} time. Call from whichever thread
+	 * runs the updates.
+	 */
+	public void publish(double time)
+	{
+		snapshots.getBack().capture(sim);
+		snapshots.publish(time);
+	}
+
+	@Override
+	public void render()
+	{
+		Ship ship = sim.getShip();
 		
-		ship.update(delta);
+		render(ship.getHorzPos(), ship.getDistance(), ship.getAltitude(), null);
+	}
+	
+	/**
+	 * Draws the scene as at the given {@link Clock} time, between the last two
+	 * published snapshots. How far between comes from the time published with
+	 * them, so it always matches the pair drawn. Safe to call while another
+	 * thread is updating the simulation.
+	 */
+	public void render(double time)
+	{
+		SnapshotBuffer.Pair<LevelSnapshot> latest = snapshots.getLatest();
 		
-		if (ship.getAltitude() < level.getDeathHeight())
-			reset();
+		if (latest == null)
+		{
+			render();
+			return;
+		}
 		
-		float newDist = ship.getDistance();
+		LevelSnapshot prev = latest.getPrevious();
+		LevelSnapshot curr = latest.getCurrent();
 		
-		deltaDist = newDist - lastDist;
-		lastDist = newDist;
+		double alpha = (time - latest.getTime())/Clock.fixDelta();
+		float t = prev.continuesTo(curr) ? (float)Math.max(0, Math.min(1, alpha)) : 1;
 		
-		camera.move(0, deltaDist, 0);
+		render(LevelSnapshot.lerp(prev.getHorzPos(), curr.getHorzPos(), t),
+			   LevelSnapshot.lerp(prev.getDistance(), curr.getDistance(), t),
+			   LevelSnapshot.lerp(prev.getAltitude(), curr.getAltitude(), t),
+			   curr);
+	}
+	
+	private void render(float shipX, float shipDist, float shipAlt, LevelSnapshot state)
+	{
+		float[] start = sim.getLevel().getStart();
+		camera.moveTo(start[0], shipDist+C_DIST_OFFSET, start[2]+C_ALT_OFFSET);
 		
-		player.loseAir((float)(delta*level.getAirLoss()));
-		player.loseFuel((float)(delta*level.getFuelLoss()));
+		// The HUD is kept in its FBO, and only drawn again once a meter
+		// would show a different number of slices.
+		boolean redraw = (state != null) ? hud.refresh(state) : hud.refresh();
 		
-		checkCollisions();
-	}
-
-	@Override
-	public void render()
-	{		
-		fbo.use(true);
-		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-		printGlError("Clearing FBO");
-		hud.render();
-		printGlError("Rendered HUD to FBO");
-		fbo.use(false);
+		if (redraw)
+		{
+			hudPass.begin();
+			fbo.use(true);
+			glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+			printGlError("Clearing FBO");
+			hud.render();
+			printGlError("Rendered HUD to FBO");
+			fbo.use(false);
+			hudPass.end();
+		}
 		
 		
+		levelPass.begin();
 		baseProg.use();		
 		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 		printGlError("Clearing default frame buffer");
 
-		if (level != null)
-			level.render();
+		if (sim.getLevel() != null)
+		{
+			sim.getLevel().setDepth(shipDist);
+			sim.getLevel().render();
+		}
 		
-		ship.render();		
+		sim.getShip().render(shipX, shipDist, shipAlt);
 		baseProg.disable();
+		levelPass.end();
 		
 		printGlError("Rendered level/ship to default FB");
 		
+		compositePass.begin();
 		textProg.use();
 		glClear(GL_DEPTH_BUFFER_BIT);
 		printGlError("Clearing default depth buffer");
 
 		fbo.bind();		
-		textProg.setValue("mytexture", fbo.layer());
+		textTexture.set(fbo.layer());
 		printGlError("Setting texture in shader: " + fbo.layer());
 
 		fQuad.render();
 		fbo.unbind();
 		textProg.disable();
+		compositePass.end();
 		
 		printGlError("Rendered textured framebuffer quad");
 	}
-	
-	private void checkAtEnd()
-	{
-		float[] shipLoc = ship.getPosition();
-		
-		if (level.atEnd(shipLoc))
-			ship.setSpeed(0);
-	}
-	
-	private void checkCollisions()
-	{
-		float[] shipLoc = ship.getPosition();
-		float[] point = new float[shipLoc.length];
-		Panel panel;
-		
-		List<float[]> points = ship.getBottom();
-		
-		for (float[] offset : points)
-		{
-			for (int i = 0; i < point.length; i++)
-				point[i] = shipLoc[i] + offset[i];
-			
-			panel = level.isColliding(point);
-			if (panel != null)
-			{
-				//System.out.println(Arrays.toString(offset) + " is colliding");
-				ship.setPosition(shipLoc[0], shipLoc[1], panel.getAltitude()-offset[2]);
-				ship.bounce(true);
-				
-				break;
-			}
-		}
-		
-		shipLoc = ship.getPosition();
-		points = ship.getFront();
-		for (float[] offset : points)
-		{
-			for (int i = 0; i < point.length; i++)
-				point[i] = shipLoc[i] + offset[i];
-			
-			panel = level.isColliding(point);
-			if (panel != null)
-			{
-				//System.out.println(Arrays.toString(offset) + " is colliding");
-				ship.setPosition(shipLoc[0], panel.getDistance()-offset[1], shipLoc[2]);
-				
-				float speed = ship.getSpeed();
-				ship.setSpeed(0);
-				
-				if (speed > ship.getMaxSpeed()/2)
-					player.massiveCollision();
-				
-				break;
-			}
-		}
-	}
 }
@@ -1,21 +1,17 @@
 package com.asymptote.skyroads;
 
-import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.glClear;
 
-import com.asymptote.gamelib.graphics.FrameBuffer;
 import com.asymptote.gamelib.graphics.ShaderProgram;
 import com.asymptote.gamelib.graphics.Renderable;
-import com.asymptote.gamelib.primitives.Circle;
-import com.asymptote.gamelib.primitives.FrameQuad;
-
-import static com.asymptote.gamelib.graphics.Utils.printGlError;
+import com.asymptote.gamelib.graphics.Uniform;
 
 public class LevelSceneUI extends Renderable
 {
 	private static final int SLICES = 30;
 	private static final int PROG_SLICES = 200;
+	private static final int JUMP_SLICES = 20;
 
 	private static final float L_GAP = 2f;
 	private static final float S_GAP = .01f;
@@ -28,32 +24,25 @@ public class LevelSceneUI extends Renderable
 	private int height;
 	
 	private Player player;
-	private RadialMeter airMeter;
-	private RadialMeter fuelMeter;
-	private RadialMeter speedMeter;
-	private RadialMeter progressMeter;
-	
-	private RadialMeter airOutline;
-	private RadialMeter fuelOutline;
-	private RadialMeter speedOutline;
-	private RadialMeter progressOutline;
 	
-	private RadialMeter airBackground;
-	private RadialMeter fuelBackground;
-	private RadialMeter speedBackground;
-	private RadialMeter progressBackground;
+	// Backgrounds, fills and outlines of every meter, drawn in two calls.
+	private GaugeBatch gauges;
 	
-	private Circle canJump;
-	private Circle cantJump;
-	private Circle jumpOutline;
+	private GaugeBatch.Gauge airMeter;
+	private GaugeBatch.Gauge fuelMeter;
+	private GaugeBatch.Gauge speedMeter;
+	private GaugeBatch.Gauge progressMeter;
+	private GaugeBatch.Gauge canJump;
 	
 	private ShaderProgram hudProg;
-	private ShaderProgram fboProg;
 	
-	private FrameBuffer bgFBO;
-	private FrameBuffer olFBO;
-	private FrameQuad bgQuad;
-	private FrameQuad olQuad;
+	private Uniform hudWidth;
+	private Uniform hudHeight;
+	
+	// What was on screen when the HUD was last drawn, as the number of
+	// slices each meter showed, so it's only drawn again once that changes.
+	private int[] drawn = new int[5];
+	private boolean dirty = true;
 	
 	
 	public LevelSceneUI(int width, int height)
@@ -64,65 +53,46 @@ public class LevelSceneUI extends Renderable
 		this.height = 480;
 		System.out.println(r*480);
 		
-		airBackground = new RadialMeter(-10, 90, 50, 25, SLICES/2, S_GAP, true);
-		fuelBackground = new RadialMeter(190, 90, 50, 25, SLICES/2, S_GAP, true);
-		speedBackground = new RadialMeter(190, -10, 100, 60, SLICES, L_GAP, true);		
-		progressBackground = new RadialMeter(190, -10, 120, 110, PROG_SLICES, 0, true);
+		float y = -this.height*.45f;
 		
-		airBackground.setLocation(0, -this.height*.45f, -1).setColor(BACKGROUND);
-		fuelBackground.setLocation(0, -this.height*.45f, -1).setColor(BACKGROUND);
-		speedBackground.setLocation(0, -this.height*.45f, -1).setColor(BACKGROUND);
-		progressBackground.setLocation(0, -this.height*.45f, -1).setColor(BACKGROUND);
-		
-		airBackground.setPercent(1);
-		fuelBackground.setPercent(1);
-		speedBackground.setPercent(1);
-		progressBackground.setPercent(1);
-		
-		airOutline = new RadialMeter(-10, 90, 50, 25, SLICES/2, S_GAP, false);
-		fuelOutline = new RadialMeter(190, 90, 50, 25, SLICES/2, S_GAP, false);
-		speedOutline = new RadialMeter(190, -10, 100, 60, SLICES, L_GAP, false);		
-		progressOutline = new RadialMeter(190, -10, 120, 110, PROG_SLICES, 0, false);
-
-		airOutline.setLocation(0, -this.height*.45f, 1).setColor(OUTLINE);
-		fuelOutline.setLocation(0, -this.height*.45f, 1).setColor(OUTLINE);
-		speedOutline.setLocation(0, -this.height*.45f, 1).setColor(OUTLINE);
-		progressOutline.setLocation(0, -this.height*.45f, 1).setColor(OUTLINE);
+		gauges = new GaugeBatch();
 		
-		airOutline.setPercent(1);
-		fuelOutline.setPercent(1);
-		speedOutline.setPercent(1);
-		progressOutline.setPercent(1);
+		// Backgrounds first, then fills over them, then the outlines (which
+		// the batch draws after every fill anyway).
+		addMeters(BACKGROUND, -1, true);
+		addJump(BACKGROUND, -1, true).setPercent(1);
 		
-		airMeter = new RadialMeter(-10, 90, 50, 25, SLICES/2, S_GAP, true);
-		fuelMeter = new RadialMeter(190, 90, 50, 25, SLICES/2, S_GAP, true);
-		speedMeter = new RadialMeter(190, -10, 100, 60, SLICES, L_GAP, true);	
-		progressMeter = new RadialMeter(190, -10, 120, 110, PROG_SLICES, 0, true);
+		airMeter = gauges.add(-10, 90, 50, 25, SLICES/2, S_GAP, true).setLocation(0, y, 0).setColor(FILL);
+		fuelMeter = gauges.add(190, 90, 50, 25, SLICES/2, S_GAP, true).setLocation(0, y, 0).setColor(FILL);
+		speedMeter = gauges.add(190, -10, 100, 60, SLICES, L_GAP, true).setLocation(0, y, 0).setColor(FILL);
+		progressMeter = gauges.add(190, -10, 120, 110, PROG_SLICES, 0, true).setLocation(0, y, 0).setColor(FILL);
+		canJump = addJump(FILL, 0, true);
 		
-		airMeter.setLocation(0, -this.height*.45f, 0).setColor(FILL);
-		fuelMeter.setLocation(0, -this.height*.45f, 0).setColor(FILL);
-		speedMeter.setLocation(0, -this.height*.45f, 0).setColor(FILL);
-		progressMeter.setLocation(0, -this.height*.45f, 0).setColor(FILL);
-		
-		canJump = new Circle(15, 20, false);
-		canJump.setLocation(0, -this.height*.45f, 0).rotate(90, 1, 0, 0).setColor(FILL);
-		
-		cantJump = new Circle(15, 20, false);
-		cantJump.setLocation(0, -this.height*.45f, -1).rotate(90, 1, 0, 0).setColor(BACKGROUND);
-		
-		jumpOutline = new Circle(15, 20, true);
-		jumpOutline.setLocation(0, -this.height*.45f, 1).rotate(90, 1, 0, 0).setColor(OUTLINE);
+		addMeters(OUTLINE, 1, false);
+		addJump(OUTLINE, 1, false).setPercent(1);
 		
 		hudProg = new ShaderProgram("src/main/glsl/sprite.vert", "src/main/glsl/sprite.frag");
-		fboProg = new ShaderProgram("src/main/glsl/fbo.vert", "src/main/glsl/texture.frag");
-
-		bgFBO = new FrameBuffer(width, height, true);
-		olFBO = new FrameBuffer(width, height, true);
 		
-		bgQuad = new FrameQuad();		
-		olQuad = new FrameQuad();		
+		hudWidth = hudProg.getUniform("width");
+		hudHeight = hudProg.getUniform("height");
+	}
+	
+	/**
+	 * Adds all four meter shapes, full, in one color and layer.
+	 */
+	private void addMeters(int color, float z, boolean filled)
+	{
+		float y = -this.height*.45f;
 		
-		renderLayers();
+		gauges.add(-10, 90, 50, 25, SLICES/2, S_GAP, filled).setLocation(0, y, z).setColor(color).setPercent(1);
+		gauges.add(190, 90, 50, 25, SLICES/2, S_GAP, filled).setLocation(0, y, z).setColor(color).setPercent(1);
+		gauges.add(190, -10, 100, 60, SLICES, L_GAP, filled).setLocation(0, y, z).setColor(color).setPercent(1);
+		gauges.add(190, -10, 120, 110, PROG_SLICES, 0, filled).setLocation(0, y, z).setColor(color).setPercent(1);
+	}
+	
+	private GaugeBatch.Gauge addJump(int color, float z, boolean filled)
+	{
+		return gauges.add(0, 360, 15, 0, JUMP_SLICES, 0, filled).setLocation(0, -this.height*.45f, z).setColor(color);
 	}
 	
 	public void watchPlayer(Player player)
@@ -137,95 +107,82 @@ public class LevelSceneUI extends Renderable
 
 	}
 	
+	/**
+	 * Takes the values to show from the live player. Returns true if the HUD
+	 * would look different from when it was last drawn, and so needs
+	 * {@link #render()}; otherwise what was drawn then can be reused.
+	 */
+	public boolean refresh()
+	{
+		return refresh(player.getAirPercent(), player.getFuelPercent(), player.getShipMaxSpeed(), player.getShipSpeed(),
+					   player.getProgress(), player.canJump());
+	}
+	
+	/**
+	 * Takes the values to show from a snapshot, instead of the live player.
+	 */
+	public boolean refresh(LevelSnapshot state)
+	{
+		return refresh(state.getAirPercent(), state.getFuelPercent(), state.getMaxSpeed(), state.getSpeed(),
+					   state.getProgress(), state.canJump());
+	}
+	
+	private boolean refresh(float air, float fuel, float maxSpeed, float speed, float progress, boolean jump)
+	{
+		airMeter.setPercent(air);
+		fuelMeter.setPercent(fuel);
+		speedMeter.setPercent(maxSpeed, speed);
+		progressMeter.setPercent(progress);
+		canJump.setPercent(jump ? 1 : 0);
+		
+		if (airMeter.getVisibleSlices() != drawn[0] || fuelMeter.getVisibleSlices() != drawn[1] ||
+			speedMeter.getVisibleSlices() != drawn[2] || progressMeter.getVisibleSlices() != drawn[3] ||
+			canJump.getVisibleSlices() != drawn[4])
+			dirty = true;
+		
+		return dirty;
+	}
+	
+	/**
+	 * Makes the next {@link #refresh()} ask for a redraw, for when whatever
+	 * the HUD was drawn into was lost.
+	 */
+	public void invalidate()
+	{
+		dirty = true;
+	}
+	
+	/**
+	 * Draws background, fills and outline with the values last given to
+	 * {@link #refresh()}. Meant to be drawn into a layer that's kept until
+	 * the next redraw.
+	 */
 	@Override
 	public void render()
 	{
-		airMeter.setPercent(player.getAirPercent());
-		fuelMeter.setPercent(player.getFuelPercent());
-		speedMeter.setPercent(player.getShipMaxSpeed(), player.getShipSpeed());
-		progressMeter.setPercent(player.getProgress());
-		
-//		System.out.println("Air: " + airMeter.getPercent());
-//		System.out.println("Fuel: " + fuelMeter.getPercent());
-//		System.out.println("Speed: " + speedMeter.getPercent());
-//		System.out.println("Progress: " + progressMeter.getPercent());
-		
-		fboProg.use();
-		glClear(GL_DEPTH_BUFFER_BIT);
-		bgFBO.bind();		
-		fboProg.setValue("mytexture", bgFBO.layer());
-		bgQuad.render();
-		bgFBO.unbind();
-		fboProg.disable();
+		drawn[0] = airMeter.getVisibleSlices();
+		drawn[1] = fuelMeter.getVisibleSlices();
+		drawn[2] = speedMeter.getVisibleSlices();
+		drawn[3] = progressMeter.getVisibleSlices();
+		drawn[4] = canJump.getVisibleSlices();
+		dirty = false;
 		
 		hudProg.use();
 		glClear(GL_DEPTH_BUFFER_BIT);
-		hudProg.setValue("width", (float)width);
-		hudProg.setValue("height", (float)height);
+		hudWidth.set((float)width);
+		hudHeight.set((float)height);
 		
-		hudProg.setMatrix("modelMat", airMeter.getModelBuffer());
-		airMeter.render();
-	
-		hudProg.setMatrix("modelMat", fuelMeter.getModelBuffer());
-		fuelMeter.render();
-
-		hudProg.setMatrix("modelMat", speedMeter.getModelBuffer());
-		speedMeter.render();		
-
-		hudProg.setMatrix("modelMat", progressMeter.getModelBuffer());
-		progressMeter.render();		
-		
-		if (player.canJump())
-		{
-			hudProg.setMatrix("modelMat", canJump.getModelBuffer());
-			canJump.render();
-		}
+		gauges.render();
 		
 		hudProg.disable();
-		
-		fboProg.use();
-		glClear(GL_DEPTH_BUFFER_BIT);
-		olFBO.bind();		
-		fboProg.setValue("mytexture", olFBO.layer());
-		olQuad.render();
-		olFBO.unbind();
-		fboProg.disable();
 	}
 	
-	private void renderLayers()
+	@Override
+	public void free()
 	{
-		hudProg.use();
-		hudProg.setValue("width", (float)this.width);
-		hudProg.setValue("height", (float)this.height);
-		System.out.println(width + " : " + height);
-		bgFBO.use(true);
-		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-		hudProg.setMatrix("modelMat", airBackground.getModelBuffer());
-		airBackground.render();	
-		hudProg.setMatrix("modelMat", fuelBackground.getModelBuffer());
-		fuelBackground.render();
-		hudProg.setMatrix("modelMat", speedBackground.getModelBuffer());
-		speedBackground.render();		
-		hudProg.setMatrix("modelMat", progressBackground.getModelBuffer());
-		progressBackground.render();		
-		hudProg.setMatrix("modelMat", cantJump.getModelBuffer());
-		cantJump.render();
-		bgFBO.use(false);
+		gauges.free();
+		hudProg.free();
 		
-		olFBO.use(true);
-		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-		hudProg.setMatrix("modelMat", airOutline.getModelBuffer());
-		airOutline.render();
-		hudProg.setMatrix("modelMat", fuelOutline.getModelBuffer());
-		fuelOutline.render();
-		hudProg.setMatrix("modelMat", speedOutline.getModelBuffer());
-		speedOutline.render();
-		hudProg.setMatrix("modelMat", progressOutline.getModelBuffer());
-		progressOutline.render();
-		hudProg.setMatrix("modelMat", jumpOutline.getModelBuffer());
-		jumpOutline.render();
-		olFBO.use(false);
-		
-		hudProg.disable();
+		super.free();
 	}
 }
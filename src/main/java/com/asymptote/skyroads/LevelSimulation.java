@@ -0,0 +1,265 @@
+package com.asymptote.skyroads;
+
+import java.util.List;
+import java.util.Random;
+
+import com.asymptote.gamelib.core.Input;
+
+/**
+ * The game logic of a level: moving the ship, colliding it with the level,
+ * and draining the player's air and fuel. Nothing in here touches OpenGL, so
+ * a level can be played without a window, as fast as the CPU allows.
+ */
+public class LevelSimulation
+{
+	private Level level;
+	private Ship ship;
+	private Player player;
+
+	private float lastDist;
+	private float deltaDist;
+
+	private int resets;
+
+	// Anything random in the game draws from here, so a run can be replayed.
+	private long seed = System.nanoTime();
+	private Random random = new Random(seed);
+
+	private long steps;
+	private InputLog recording;
+
+	// Scratch space for collision checks, so a step allocates nothing.
+	private float[] shipLoc = new float[3];
+	private float[] point = new float[3];
+
+	public void handleInput(Input input, boolean active)
+	{
+		if (recording != null && input != Input.NONE)
+			recording.add(steps, input, active);
+
+		if (input == Input.LEFT)
+			ship.moveLeft(active);
+		if (input == Input.RIGHT)
+			ship.moveRight(active);
+		if (input == Input.UP)
+			ship.accelerate(active);
+		if (input == Input.DOWN)
+			ship.decelerate(active);
+
+		if (input == Input.JUMP)
+		{
+			if (active)
+				ship.thrust();
+
+			if (!active)
+				ship.rising(false);
+		}
+
+		if (input == Input.RESTART && active)
+		{
+			reset();
+			ship.setPosition(level.getStart());
+		}
+		if (input == Input.RESET && active)
+		{
+			reset();
+			ship.setPosition(0,0,10);
+		}
+	}
+
+	public void startScene()
+	{
+		float[] start = level.getStart();
+
+		ship.setPosition(start);
+
+		// Setting up, so it's fine to wait for the start to load.
+		level.advance(start[Level.DISTANCE]);
+		level.awaitLoaded(5000);
+
+		lastDist = start[1];
+		deltaDist = 0;
+
+		steps = 0;
+		random.setSeed(seed);
+
+		player.reset();
+	}
+
+	public void setShip(Ship ship)
+	{
+		this.ship = ship;
+
+		if (level != null)
+		{
+			ship.setGravity(level.getGravityFactor());
+
+			player = new Player(ship,this.level,random);
+		}
+	}
+
+	public void setLevel(Level level)
+	{
+		this.level = level;
+
+		if (ship != null)
+		{
+			ship.setGravity(level.getGravityFactor());
+
+			player = new Player(ship,this.level,random);
+		}
+	}
+
+	/**
+	 * Seeds everything random in the simulation. Takes effect from the next
+	 * {@link #startScene()}.
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * Records every input from now on into the given log, or stops recording
+	 * if it's null.
+	 */
+	public void record(InputLog log)
+	{
+		recording = log;
+	}
+
+	/**
+	 * How many updates have run since the scene was started.
+	 */
+	public long getSteps()
+	{
+		return steps;
+	}
+
+	public Level getLevel()
+	{
+		return level;
+	}
+
+	public Ship getShip()
+	{
+		return ship;
+	}
+
+	public Player getPlayer()
+	{
+		return player;
+	}
+
+	/**
+	 * How far the ship moved forward during the last update.
+	 */
+	public float getDeltaDistance()
+	{
+		return deltaDist;
+	}
+
+	/**
+	 * How many times the ship has been put back at the start.
+	 */
+	public int getResets()
+	{
+		return resets;
+	}
+
+	public boolean atEnd()
+	{
+		return level.atEnd(ship.getPosition(shipLoc));
+	}
+
+	public void reset()
+	{
+		resets++;
+
+		ship.reset();
+		ship.setPosition(level.getStart());
+
+		player.reset();
+	}
+
+	public void update(double delta)
+	{
+		//System.out.println(ship.getAltitude() + "  " + level.getDeathHeight());
+
+		ship.update(delta);
+
+		level.advance(ship.getDistance());
+
+		if (ship.getAltitude() < level.getDeathHeight())
+			reset();
+
+		float newDist = ship.getDistance();
+
+		deltaDist = newDist - lastDist;
+		lastDist = newDist;
+
+		player.loseAir((float)(delta*level.getAirLoss()));
+		player.loseFuel((float)(delta*level.getFuelLoss()));
+
+		checkCollisions();
+
+		steps++;
+	}
+
+	// Package private so the benchmarks can time it on its own.
+	void checkCollisions()
+	{
+		int panel;
+
+		ship.getPosition(shipLoc);
+		List<float[]> points = ship.getBottom();
+
+		for (int p = 0; p < points.size(); p++)
+		{
+			float[] offset = points.get(p);
+
+			for (int i = 0; i < point.length; i++)
+				point[i] = shipLoc[i] + offset[i];
+
+			panel = level.findPanel(point);
+			if (panel >= 0)
+			{
+				//System.out.println(Arrays.toString(offset) + " is colliding");
+				ship.setPosition(shipLoc[0], shipLoc[1], level.getPanelAltitude(panel)-offset[2]);
+				ship.bounce(true);
+
+				break;
+			}
+		}
+
+		ship.getPosition(shipLoc);
+		points = ship.getFront();
+		for (int p = 0; p < points.size(); p++)
+		{
+			float[] offset = points.get(p);
+
+			for (int i = 0; i < point.length; i++)
+				point[i] = shipLoc[i] + offset[i];
+
+			panel = level.findPanel(point);
+			if (panel >= 0)
+			{
+				//System.out.println(Arrays.toString(offset) + " is colliding");
+				ship.setPosition(shipLoc[0], level.getPanelDistance(panel)-offset[1], shipLoc[2]);
+
+				float speed = ship.getSpeed();
+				ship.setSpeed(0);
+
+				if (speed > ship.getMaxSpeed()/2)
+					player.massiveCollision();
+
+				break;
+			}
+		}
+	}
+}
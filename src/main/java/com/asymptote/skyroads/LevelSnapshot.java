@@ -0,0 +1,123 @@
+package com.asymptote.skyroads;
+
+import com.asymptote.gamelib.core.SnapshotBuffer;
+
+/**
+ * A copy of everything the renderer needs from a level simulation after one
+ * update: where the ship is, and the values shown on the HUD. Snapshots are
+ * made once and filled in again every update, so they're only safe to read
+ * once handed over by a {@link SnapshotBuffer}.
+ */
+public final class LevelSnapshot implements SnapshotBuffer.Snapshot<LevelSnapshot>
+{
+	private float horzPos;
+	private float distance;
+	private float altitude;
+	
+	private float airPercent;
+	private float fuelPercent;
+	private float speed;
+	private float maxSpeed;
+	private float progress;
+	private boolean canJump;
+	
+	private int resets;
+	
+	/**
+	 * Copies the simulation's state after its last update.
+	 */
+	public void capture(LevelSimulation sim)
+	{
+		Ship ship = sim.getShip();
+		Player player = sim.getPlayer();
+		
+		horzPos = ship.getHorzPos();
+		distance = ship.getDistance();
+		altitude = ship.getAltitude();
+		
+		airPercent = player.getAirPercent();
+		fuelPercent = player.getFuelPercent();
+		speed = player.getShipSpeed();
+		maxSpeed = player.getShipMaxSpeed();
+		progress = player.getProgress();
+		canJump = player.canJump();
+		
+		resets = sim.getResets();
+	}
+	
+	@Override
+	public void set(LevelSnapshot other)
+	{
+		horzPos = other.horzPos;
+		distance = other.distance;
+		altitude = other.altitude;
+		
+		airPercent = other.airPercent;
+		fuelPercent = other.fuelPercent;
+		speed = other.speed;
+		maxSpeed = other.maxSpeed;
+		progress = other.progress;
+		canJump = other.canJump;
+		
+		resets = other.resets;
+	}
+	
+	/**
+	 * Whether it makes sense to interpolate from this snapshot to next, which
+	 * it doesn't if the ship was put back at the start in between.
+	 */
+	public boolean continuesTo(LevelSnapshot next)
+	{
+		return resets == next.resets;
+	}
+	
+	public static float lerp(float from, float to, float t)
+	{
+		return from + (to-from)*t;
+	}
+	
+	public float getHorzPos()
+	{
+		return horzPos;
+	}
+	
+	public float getDistance()
+	{
+		return distance;
+	}
+	
+	public float getAltitude()
+	{
+		return altitude;
+	}
+	
+	public float getAirPercent()
+	{
+		return airPercent;
+	}
+	
+	public float getFuelPercent()
+	{
+		return fuelPercent;
+	}
+	
+	public float getSpeed()
+	{
+		return speed;
+	}
+	
+	public float getMaxSpeed()
+	{
+		return maxSpeed;
+	}
+	
+	public float getProgress()
+	{
+		return progress;
+	}
+	
+	public boolean canJump()
+	{
+		return canJump;
+	}
+}
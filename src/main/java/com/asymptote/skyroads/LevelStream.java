@@ -0,0 +1,420 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps only the stretch of a level around the ship loaded. The course is cut
+ * into segments of a fixed distance, each with its own panels, collision
+ * index and batched mesh. Segments up to a few ahead of the ship are loaded
+ * (read from the source, indexed and baked into vertices) on a background
+ * thread, uploaded on the render thread, and dropped again once the ship is
+ * past them, so memory stays bounded however long the course is.
+ *
+ * Nothing here ever waits on a segment. {@link #advance(float)} and
+ * {@link #findPanel(float[])} belong to the update thread and only see the
+ * segments that have finished loading; {@link #render(float, float)} and
+ * {@link #free()} belong to the render thread. If the ship outruns the loader
+ * there's simply nothing under it yet.
+ *
+ * The segments around the start are kept as well, so a restart doesn't have
+ * to wait for them.
+ */
+public class LevelStream
+{
+	public static final int DEFAULT_SEGMENT_LENGTH = 64;
+	public static final int DEFAULT_AHEAD = 4;
+	public static final int DEFAULT_BEHIND = 1;
+
+	// Panel handles from findPanel are the segment's slot in the high bits and
+	// its own panel id in the low ones.
+	private static final int PANEL_BITS = 20;
+	private static final int PANEL_MASK = (1 << PANEL_BITS) - 1;
+
+	// Segments uploaded per frame, so a burst of loads doesn't stall a frame.
+	private static final int UPLOADS_PER_FRAME = 1;
+
+	private static final int LOADING = 0;
+	private static final int READY = 1;
+	private static final int UPLOADING = 2;
+	private static final int UPLOADED = 3;
+	private static final int RETIRED = 4;
+
+	private SegmentSource source;
+	private int segmentLength;
+	private int ahead;
+	private int behind;
+
+	private ExecutorService loader;
+
+	// Owned by the update thread, sorted by segment number.
+	private List<Segment> resident = new ArrayList<Segment>();
+	private int startSegment;
+	private int endSegment = Integer.MAX_VALUE;
+
+	// What the render thread draws from, replaced whenever resident changes.
+	private volatile Segment[] snapshot = new Segment[0];
+
+	// Uploaded segments the update thread has dropped, for the render thread
+	// to free.
+	private ConcurrentLinkedQueue<Segment> retired = new ConcurrentLinkedQueue<Segment>();
+
+	public LevelStream(SegmentSource source)
+	{
+		this(source, DEFAULT_SEGMENT_LENGTH, DEFAULT_AHEAD, DEFAULT_BEHIND);
+	}
+
+	/**
+	 * @param ahead		how many segments past the ship's to keep loaded.
+	 * @param behind	how many segments before the ship's to keep.
+	 */
+	public LevelStream(SegmentSource source, int segmentLength, int ahead, int behind)
+	{
+		this.source = source;
+		this.segmentLength = (segmentLength > 0) ? segmentLength : DEFAULT_SEGMENT_LENGTH;
+		this.ahead = Math.max(ahead, 1);
+		this.behind = Math.max(behind, 0);
+
+		loader = Executors.newSingleThreadExecutor(r ->
+		{
+			Thread t = new Thread(r, "level loader");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public int getSegmentLength()
+	{
+		return segmentLength;
+	}
+
+	/**
+	 * Keeps the segments at and after this distance loaded as well, for
+	 * restarts.
+	 */
+	public void setStart(float distance)
+	{
+		startSegment = segmentAt(distance);
+	}
+
+	/**
+	 * Moves the loaded window to the ship's distance: asks the loader for the
+	 * segments now in range and drops the ones left behind. Never blocks.
+	 */
+	public void advance(float distance)
+	{
+		int current = segmentAt(distance);
+		int first = current - behind;
+		int last = current + ahead;
+
+		boolean changed = false;
+
+		for (int i = resident.size()-1; i >= 0; i--)
+		{
+			Segment s = resident.get(i);
+			int state = s.state.get();
+
+			if (state != LOADING && s.ended)
+			{
+				endSegment = Math.min(endSegment, s.number);
+				resident.remove(i);
+				changed = true;
+			}
+			// Long panels can still reach the ship from a segment behind it.
+			else if (!isWanted(s.number, first, last) && (state == LOADING || s.number > current || s.reach < distance))
+			{
+				retire(s);
+				resident.remove(i);
+				changed = true;
+			}
+		}
+
+		for (int n = first; n <= last; n++)
+			changed |= request(n);
+
+		for (int n = startSegment; n <= startSegment + ahead; n++)
+			changed |= request(n);
+
+		if (changed)
+			snapshot = resident.toArray(new Segment[resident.size()]);
+	}
+
+	/**
+	 * Waits for every segment asked for so far to finish loading, up to the
+	 * timeout. Only for setting up a level, never from the update loop.
+	 */
+	public boolean awaitLoaded(long timeoutMillis)
+	{
+		long until = System.currentTimeMillis() + timeoutMillis;
+
+		for (Segment s : snapshot)
+			while (s.state.get() == LOADING)
+			{
+				if (System.currentTimeMillis() > until)
+					return false;
+
+				try
+				{
+					Thread.sleep(1);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+
+		return true;
+	}
+
+	/**
+	 * Finds the loaded panel containing the point, or -1. The result is only
+	 * good until the next {@link #advance(float)}.
+	 */
+	public int findPanel(float[] pos)
+	{
+		for (int i = 0; i < resident.size(); i++)
+		{
+			Segment s = resident.get(i);
+
+			if (s.state.get() == LOADING || s.index == null || pos[Level.DISTANCE] < s.from || pos[Level.DISTANCE] >= s.reach)
+				continue;
+
+			int panel = s.index.find(pos);
+
+			if (panel >= 0)
+				return (i << PANEL_BITS) | panel;
+		}
+
+		return -1;
+	}
+
+	public int getAltitude(int panel)
+	{
+		return getData(panel).getAltitude(panel & PANEL_MASK);
+	}
+
+	public int getDistance(int panel)
+	{
+		return getData(panel).getDistance(panel & PANEL_MASK);
+	}
+
+	private LevelData getData(int panel)
+	{
+		return resident.get(panel >>> PANEL_BITS).data;
+	}
+
+	/**
+	 * Frees dropped segments, uploads newly loaded ones, and draws the
+	 * uploaded ones that overlap distances near to far.
+	 */
+	public void render(float near, float far)
+	{
+		Segment s;
+		while ((s = retired.poll()) != null)
+			s.freeMesh();
+
+		Segment[] segments = snapshot;
+		int uploads = 0;
+
+		for (int i = 0; i < segments.length; i++)
+		{
+			s = segments[i];
+
+			if (uploads < UPLOADS_PER_FRAME && s.state.get() == READY)
+				if (s.upload())
+					uploads++;
+
+			if (s.batch != null && s.reach >= near && s.from <= far)
+				s.batch.render();
+		}
+	}
+
+	/**
+	 * Stops the loader and frees every mesh. Call from the render thread.
+	 */
+	public void free()
+	{
+		loader.shutdownNow();
+
+		Segment s;
+		while ((s = retired.poll()) != null)
+			s.freeMesh();
+
+		for (Segment r : snapshot)
+			r.freeMesh();
+
+		resident.clear();
+		snapshot = new Segment[0];
+	}
+
+	/**
+	 * How many segments are loaded or loading.
+	 */
+	public int getResidentCount()
+	{
+		return snapshot.length;
+	}
+
+	private int segmentAt(float distance)
+	{
+		return (int)Math.floor(distance/segmentLength);
+	}
+
+	private boolean isWanted(int n, int first, int last)
+	{
+		return (n >= first && n <= last) || (n >= startSegment && n <= startSegment + ahead);
+	}
+
+	// Starts loading segment n, unless it's already here. Returns whether it
+	// was added.
+	private boolean request(int n)
+	{
+		if (n >= endSegment)
+			return false;
+
+		int i = 0;
+		while (i < resident.size() && resident.get(i).number < n)
+			i++;
+
+		if (i < resident.size() && resident.get(i).number == n)
+			return false;
+
+		Segment s = new Segment(n, n*segmentLength, (n+1)*segmentLength);
+		resident.add(i, s);
+		loader.execute(s::load);
+
+		return true;
+	}
+
+	private void retire(Segment s)
+	{
+		while (true)
+		{
+			int state = s.state.get();
+
+			if (state == UPLOADED)
+			{
+				s.state.set(RETIRED);
+				retired.add(s);
+				break;
+			}
+
+			// A loader or uploader still working on it sees the change and
+			// cleans up after itself.
+			if (s.state.compareAndSet(state, RETIRED))
+				break;
+		}
+
+		s.data = null;
+		s.index = null;
+	}
+
+	private class Segment
+	{
+		final int number;
+		final int from;
+		final int to;
+
+		final AtomicInteger state = new AtomicInteger(LOADING);
+
+		// Written by the loader before the state leaves LOADING.
+		LevelData data;
+		PanelIndex index;
+		int reach;
+		boolean ended;
+		float[] verts;
+		int[] indices;
+
+		// Render thread only.
+		PanelBatch batch;
+
+		Segment(int number, int from, int to)
+		{
+			this.number = number;
+			this.from = from;
+			this.to = to;
+			this.reach = to;
+		}
+
+		void load()
+		{
+			LevelData loaded;
+
+			try
+			{
+				loaded = source.load(from, to);
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not load level segment " + number + ": " + e.getMessage());
+				loaded = new LevelData(1);
+			}
+
+			if (loaded == null)
+			{
+				ended = true;
+				loaded = new LevelData(1);
+			}
+
+			int count = loaded.getPanelCount();
+			int far = to;
+
+			for (int i = 0; i < count; i++)
+				far = Math.max(far, loaded.getDistance(i) + loaded.getLength(i));
+
+			data = loaded;
+			index = loaded.makeIndex();
+			reach = far;
+
+			if (count > 0)
+			{
+				verts = PanelBatch.bakeVerts(loaded, null);
+				indices = PanelBatch.bakeIndices(count);
+			}
+
+			// Dropped while loading, so nobody wants it any more.
+			if (!state.compareAndSet(LOADING, READY))
+			{
+				verts = null;
+				indices = null;
+			}
+		}
+
+		// Returns whether anything was uploaded.
+		boolean upload()
+		{
+			if (!state.compareAndSet(READY, UPLOADING))
+				return false;
+
+			boolean uploaded = false;
+
+			if (verts != null)
+			{
+				batch = new PanelBatch(verts, indices, indices.length/Panel.INDICES.length);
+				uploaded = true;
+			}
+
+			verts = null;
+			indices = null;
+
+			if (!state.compareAndSet(UPLOADING, UPLOADED))
+				freeMesh();
+
+			return uploaded;
+		}
+
+		void freeMesh()
+		{
+			if (batch != null)
+				batch.free();
+
+			batch = null;
+		}
+	}
+}
@@ -0,0 +1,400 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits the text level format into words and numbers, reading straight from
+ * the bytes of a channel through one fixed buffer, or from a buffer already
+ * holding the text. Numbers are parsed as
+ * they're read, without making strings, so a level of any size is read with
+ * the same few allocations.
+ *
+ * Input is read a line (a record) at a time: {@link #nextRecord()} moves to
+ * the next line with anything on it, the read methods take the fields in
+ * order, and {@link #endRecord()} checks nothing's left over. Blank lines,
+ * and anything after a '#', are skipped. Any mistake is thrown as a
+ * {@link LevelFormatException} with the line and column it was found at.
+ */
+public class LevelTokenizer
+{
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	// Longest word or number kept whole, for messages and the rare float that
+	// has to be parsed the slow way.
+	private static final int MAX_TOKEN = 64;
+
+	// Exact powers of ten, for parsing floats with few enough digits exactly.
+	private static final double[] POWERS = new double[23];
+
+	static
+	{
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++)
+			POWERS[i] = POWERS[i-1]*10;
+	}
+
+	private ReadableByteChannel channel;
+	private ByteBuffer buffer;
+	private int pos;
+	private int limit;
+
+	private int line = 1;
+	private int column = 1;
+
+	// Where the token being read started.
+	private int tokenLine;
+	private int tokenColumn;
+
+	private byte[] token = new byte[MAX_TOKEN];
+	private int tokenLength;
+
+	public LevelTokenizer(ReadableByteChannel channel)
+	{
+		this.channel = channel;
+
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * Reads the text between the buffer's position and limit, which can be
+	 * one piece of a bigger file. Lines are counted from the start of it.
+	 */
+	public LevelTokenizer(ByteBuffer text)
+	{
+		buffer = text.slice();
+		limit = buffer.limit();
+	}
+
+	/**
+	 * Moves to the next line with a record on it. Returns false at the end of
+	 * the input.
+	 */
+	public boolean nextRecord() throws IOException
+	{
+		while (true)
+		{
+			skipSpaces();
+
+			int c = peek();
+
+			if (c < 0)
+				return false;
+
+			if (c == '#')
+				skipComment();
+			else if (c != '\n')
+				return true;
+
+			if (peek() == '\n')
+				newLine();
+		}
+	}
+
+	/**
+	 * Checks the rest of the line is empty (or a comment) and moves past it.
+	 */
+	public void endRecord() throws IOException
+	{
+		if (!atRecordEnd())
+		{
+			readToken();
+			throw error("Unexpected '" + tokenText() + "' at the end of the line");
+		}
+
+		skipComment();
+
+		if (peek() == '\n')
+			newLine();
+	}
+
+	/**
+	 * Whether the rest of the line is empty (or a comment).
+	 */
+	public boolean atRecordEnd() throws IOException
+	{
+		skipSpaces();
+
+		int c = peek();
+
+		return c < 0 || c == '\n' || c == '#';
+	}
+
+	/**
+	 * Reads a word and returns which of the given words it is, ignoring case.
+	 * Throws if it's none of them; what, names what was expected.
+	 */
+	public int readWord(byte[][] words, String what) throws IOException
+	{
+		readToken();
+
+		for (int w = 0; w < words.length; w++)
+			if (matches(words[w]))
+				return w;
+
+		throw error("Unknown " + what + " '" + tokenText() + "'");
+	}
+
+	public int readInt(String what) throws IOException
+	{
+		startToken(what);
+
+		int i = 0;
+		boolean negative = false;
+
+		if (i < tokenLength && (token[i] == '-' || token[i] == '+'))
+			negative = token[i++] == '-';
+
+		if (i == tokenLength)
+			throw error("Expected an integer for " + what + ", found '" + tokenText() + "'");
+
+		long value = 0;
+
+		for (; i < tokenLength; i++)
+		{
+			int d = token[i] - '0';
+
+			if (d < 0 || d > 9)
+				throw error("Expected an integer for " + what + ", found '" + tokenText() + "'");
+
+			value = value*10 + d;
+
+			if (value > (long)Integer.MAX_VALUE + 1)
+				throw error("Integer too large for " + what + ": '" + tokenText() + "'");
+		}
+
+		if (negative)
+			value = -value;
+
+		if (value > Integer.MAX_VALUE)
+			throw error("Integer too large for " + what + ": '" + tokenText() + "'");
+
+		return (int)value;
+	}
+
+	/**
+	 * Reads a decimal number, with an optional exponent. The result is the
+	 * same as {@link Float#parseFloat(String)} would give.
+	 */
+	public float readFloat(String what) throws IOException
+	{
+		startToken(what);
+
+		int i = 0;
+		boolean negative = false;
+
+		if (i < tokenLength && (token[i] == '-' || token[i] == '+'))
+			negative = token[i++] == '-';
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean any = false;
+
+		for (; i < tokenLength && isDigit(token[i]); i++, any = true)
+			if (digits < 18)
+			{
+				mantissa = mantissa*10 + (token[i] - '0');
+				if (mantissa != 0)
+					digits++;
+			}
+			else
+				scale++;
+
+		if (i < tokenLength && token[i] == '.')
+			for (i++; i < tokenLength && isDigit(token[i]); i++, any = true)
+				if (digits < 18)
+				{
+					mantissa = mantissa*10 + (token[i] - '0');
+					if (mantissa != 0)
+						digits++;
+					scale--;
+				}
+
+		if (any && i < tokenLength && (token[i] == 'e' || token[i] == 'E'))
+		{
+			int exp = 0;
+			boolean negExp = false;
+
+			i++;
+			if (i < tokenLength && (token[i] == '-' || token[i] == '+'))
+				negExp = token[i++] == '-';
+
+			if (i == tokenLength)
+				any = false;
+
+			for (; i < tokenLength && isDigit(token[i]); i++)
+				exp = Math.min(exp*10 + (token[i] - '0'), 1000);
+
+			scale += negExp ? -exp : exp;
+		}
+
+		if (!any || i != tokenLength)
+			throw error("Expected a number for " + what + ", found '" + tokenText() + "'");
+
+		if (mantissa == 0)
+			return negative ? -0f : 0f;
+
+		// Below 2^53 and with an exact power of ten, the division or product
+		// is the correctly rounded double. Rounding that to a float is only
+		// wrong when it lands exactly between two floats.
+		if (digits <= 15 && scale >= -22 && scale <= 22)
+		{
+			double d = (scale < 0) ? mantissa/POWERS[-scale] : mantissa*POWERS[scale];
+
+			if (d >= Float.MIN_NORMAL && (Double.doubleToRawLongBits(d) & 0x1FFFFFFFL) != 0x10000000L)
+				return (float)(negative ? -d : d);
+		}
+
+		return Float.parseFloat(tokenText());
+	}
+
+	public int getLine()
+	{
+		return line;
+	}
+
+	public int getColumn()
+	{
+		return column;
+	}
+
+	/**
+	 * An exception for a mistake in the token just read.
+	 */
+	public LevelFormatException error(String message)
+	{
+		return new LevelFormatException(message, tokenLine, tokenColumn);
+	}
+
+	// Reads the next token into token, throwing if the line's already over.
+	private void startToken(String what) throws IOException
+	{
+		if (atRecordEnd())
+		{
+			tokenLine = getLine();
+			tokenColumn = column;
+			throw error("Missing " + what);
+		}
+
+		readToken();
+	}
+
+	private void readToken() throws IOException
+	{
+		skipSpaces();
+
+		tokenLine = getLine();
+		tokenColumn = column;
+		tokenLength = 0;
+
+		int c;
+		while ((c = peek()) >= 0 && !isSpace(c) && c != '\n' && c != '#')
+		{
+			if (tokenLength < MAX_TOKEN)
+				token[tokenLength++] = (byte)c;
+
+			pos++;
+			column++;
+		}
+
+		if (tokenLength == MAX_TOKEN)
+			throw error("Token too long: '" + tokenText() + "...'");
+	}
+
+	private boolean matches(byte[] word)
+	{
+		if (word.length != tokenLength)
+			return false;
+
+		for (int i = 0; i < tokenLength; i++)
+			if ((token[i] | 0x20) != word[i])
+				return false;
+
+		return true;
+	}
+
+	private String tokenText()
+	{
+		return new String(token, 0, tokenLength, StandardCharsets.US_ASCII);
+	}
+
+	private void skipSpaces() throws IOException
+	{
+		int c;
+		while ((c = peek()) >= 0 && isSpace(c))
+		{
+			pos++;
+			column++;
+		}
+	}
+
+	private void skipComment() throws IOException
+	{
+		int c;
+		while ((c = peek()) >= 0 && c != '\n')
+		{
+			pos++;
+			column++;
+		}
+	}
+
+	private void newLine()
+	{
+		pos++;
+		line++;
+		column = 1;
+	}
+
+	private int peek() throws IOException
+	{
+		if (pos == limit && !fill())
+			return -1;
+
+		return buffer.get(pos) & 0xFF;
+	}
+
+	private boolean fill() throws IOException
+	{
+		if (channel == null)
+			return false;
+
+		buffer.clear();
+
+		int read;
+		do
+			read = channel.read(buffer);
+		while (read == 0);
+
+		if (read < 0)
+		{
+			channel = null;
+			return false;
+		}
+
+		pos = 0;
+		limit = read;
+
+		return true;
+	}
+
+	private static boolean isSpace(int c)
+	{
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+	private static boolean isDigit(byte c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Lower case ASCII bytes of a word, for {@link #readWord}.
+	 */
+	public static byte[] word(String word)
+	{
+		return word.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+	}
+}
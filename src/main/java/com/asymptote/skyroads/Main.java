@@ -1,5 +1,6 @@
 package com.asymptote.skyroads;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +16,7 @@ import static org.lwjgl.opengl.GL32.GL_PROGRAM_POINT_SIZE;
 import com.asymptote.gamelib.core.Clock;
 import com.asymptote.gamelib.core.GameWindow;
 import com.asymptote.gamelib.core.Input;
+import com.asymptote.gamelib.graphics.GPUProfiler;
 import com.asymptote.gamelib.graphics.Renderable;
 import com.asymptote.gamelib.primitives.Axis;
 import com.asymptote.gamelib.primitives.Grid;
@@ -26,6 +28,13 @@ public class Main extends GameWindow
 	private Level level;
 	private Ship ship;
 	
+	private String recordPath;
+	private InputLog recording;
+	
+	private boolean profileGPU;
+	private boolean streamLevel;
+	private Long endlessSeed;
+	
 	public Main()
 	{
 		super(800, 600);
@@ -39,10 +48,15 @@ public class Main extends GameWindow
 
 	private void initGameObjects()
 	{
-		level = Level.loadLevel("res/testlevel");
+		if (endlessSeed != null)
+			level = Level.streamLevel(new LevelGenerator(endlessSeed));
+		else
+			level = streamLevel ? Level.streamLevel("res/testlevel") : Level.loadLevel("res/testlevel");
 		
 		if (level == null)
 			System.out.println("level creation failed");
+		else if (!level.isStreamed())
+			level.setRenderMode(PanelRenderMode.BATCHED);
 		
 		ship = new Ship();
 		
@@ -50,6 +64,14 @@ public class Main extends GameWindow
 		scene.setLevel(level);
 		scene.setShip(ship);
 		
+		if (recordPath != null)
+		{
+			LevelSimulation sim = scene.getSimulation();
+			
+			recording = new InputLog(sim.getSeed(), Clock.fixDelta());
+			sim.record(recording);
+		}
+		
 		/*
 		shapes = new ArrayList<Renderable>();
 		shapes.add(new Axis());
@@ -70,6 +92,9 @@ public class Main extends GameWindow
 		
 		glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
 		
+		if (profileGPU)
+			GPUProfiler.setEnabled(true);
+		
 		int error = GL11.glGetError();
 		if (error != GL11.GL_NO_ERROR)
 			System.out.println("Error while initializing graphics context: " + error);
@@ -133,17 +158,113 @@ public class Main extends GameWindow
 			shape.render();
 		*/
 	}
+	
+	@Override
+	protected void render(double time)
+	{
+		scene.render(time);
+	}
+	
+	@Override
+	protected void publish(double time)
+	{
+		scene.publish(time);
+	}
 
 	@Override
 	protected void cleanup()
 	{
-		// TODO Auto-generated method stub
-		
+		if (recording != null)
+		{
+			recording.finish(scene.getSimulation());
+			
+			try
+			{
+				recording.write(recordPath);
+				System.out.println("Recorded " + recording.getEventCount() + " inputs to " + recordPath);
+			}
+			catch (IOException e)
+			{
+				System.out.println("Could not save input log: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Times the render passes on the GPU, reported along with the frame
+	 * stats. Has to be set before the game is run.
+	 */
+	public void profileGPU(boolean profile)
+	{
+		profileGPU = profile;
+	}
+	
+	/**
+	 * Loads the level a segment at a time around the ship. Has to be set
+	 * before the game is run.
+	 */
+	public void streamLevel(boolean stream)
+	{
+		streamLevel = stream;
+	}
+	
+	/**
+	 * Plays an endless course generated from the seed instead of the test
+	 * level. Has to be set before the game is run.
+	 */
+	public void playEndless(long seed)
+	{
+		endlessSeed = seed;
+	}
+	
+	/**
+	 * Records every input given to the level into a log at the given path,
+	 * saved when the game closes. Play it back with {@link HeadlessMain}.
+	 * Endless courses and streamed levels can't be recorded.
+	 */
+	public void recordTo(String path)
+	{
+		recordPath = path;
 	}    
     
     public static void main(String[] args)
     {
         Main game = new Main();
+        
+        // -threaded runs updates on their own thread, -record <file> logs inputs for replay,
+        // -stats <seconds> prints frame timings that often, -gpu adds GPU pass timings to them,
+        // -stream loads the level in segments around the ship, -endless <seed> plays a generated course.
+        for (int i = 0; i < args.length; i++)
+        {
+        	if (args[i].equals("-threaded"))
+        		game.setThreadedUpdate(true);
+        	if (args[i].equals("-record") && i+1 < args.length)
+        		game.recordTo(args[++i]);
+        	if (args[i].equals("-stats") && i+1 < args.length)
+        		game.logFrameStats(Double.parseDouble(args[++i]));
+        	if (args[i].equals("-gpu"))
+        		game.profileGPU(true);
+        	if (args[i].equals("-stream"))
+        		game.streamLevel(true);
+        	if (args[i].equals("-endless") && i+1 < args.length)
+        		game.playEndless(Long.parseLong(args[++i]));
+        }
+        
+        // A replay only ever loads a level file, so it couldn't play a generated course back.
+        if (game.recordPath != null && game.endlessSeed != null)
+        {
+        	System.out.println("Endless courses can't be recorded, leave out -record or -endless.");
+        	return;
+        }
+        
+        // What a streamed level's ship collides with depends on how soon its segments load,
+        // so a replay wouldn't follow the same path.
+        if (game.recordPath != null && game.streamLevel)
+        {
+        	System.out.println("Streamed levels can't be recorded, leave out -record or -stream.");
+        	return;
+        }
+        
         game.run();
     }
 
@@ -16,6 +16,11 @@ public class Panel extends Renderable
 	private float[] color;
 		
 	public Panel(int horzPos, int distance, int altitude, int width, int length, int height, String type, float[] color)
+	{
+		this(horzPos, distance, altitude, width, length, height, PanelType.valueOf(type.toUpperCase()), color);
+	}
+	
+	public Panel(int horzPos, int distance, int altitude, int width, int length, int height, PanelType type, float[] color)
 	{
 		super();
 		
@@ -27,7 +32,7 @@ public class Panel extends Renderable
 		this.length = length;
 		this.height = height;
 		
-		this.type = PanelType.valueOf(type.toUpperCase());
+		this.type = type;
 		if (this.type == null) this.type = PanelType.NORMAL;
 		
 		this.color = color;
@@ -38,37 +43,49 @@ public class Panel extends Renderable
 		createMesh();
 	}
 	
+	static final byte[] INDICES = {	0, 1, 2, 0, 2, 3,		// bottom
+									0, 4, 7, 0, 7, 1,		// back
+									7, 6, 2, 7, 2, 1,		// right
+									6, 5, 3, 6, 3, 2,		// front
+									4, 0, 3, 4, 3, 5,		// left
+									4, 5, 6, 4, 6, 7 };		// top
+	
+	static final int NUM_VERTS = 8;
+	
+	/**
+	 * The corners of a panel's box in world space, as homogeneous coordinates,
+	 * in the order {@link #INDICES} expects.
+	 */
+	static float[] makeVerts(int x, int y, int z, int width, int length, int height)
+	{
+		return new float[] {	x		,y+length	,z			,1, 
+								x+width	,y+length	,z			,1,
+								x+width	,y+length	,z-height	,1,
+								x		,y+length	,z-height	,1,
+								                       
+								x		,y			,z			,1,
+								x		,y			,z-height	,1,
+								x+width	,y			,z-height	,1,
+								x+width	,y			,z			,1	};
+	}
+	
+	/**
+	 * The color a panel is drawn with. Special panels always use the color of
+	 * their type, normal panels use their own color or the default.
+	 */
+	static float[] displayColor(PanelType type, float[] color)
+	{
+		if (type != null && type != PanelType.NORMAL)
+			return type.getValue();
+		
+		return (color != null) ? color : DEFAULT_COLOR;
+	}
+	
 	private void createMesh()
 	{		
-		int x = horzPos;
-		int y = distance;
-		int z = altitude;
-		
-		float[] VERTS = {	x		,y+length	,z			,1, 
-							x+width	,y+length	,z			,1,
-							x+width	,y+length	,z-height	,1,
-							x		,y+length	,z-height	,1,
-							                       
-							x		,y			,z			,1,
-							x		,y			,z-height	,1,
-							x+width	,y			,z-height	,1,
-							x+width	,y			,z			,1	};
-
-		byte[] INDICES = {	0, 1, 2, 0, 2, 3,		// bottom
-							0, 4, 7, 0, 7, 1,		// back
-							7, 6, 2, 7, 2, 1,		// right
-							6, 5, 3, 6, 3, 2,		// front
-							4, 0, 3, 4, 3, 5,		// left
-							4, 5, 6, 4, 6, 7 };		// top
-		
-		loadVerts(VERTS);
+		loadVerts(makeVerts(horzPos, distance, altitude, width, length, height), displayColor(type, color));
 		loadIndices(INDICES);
 		
-		if (color == null)
-			setColor(DEFAULT_COLOR);
-		else
-			setColor(color);
-		
 		//System.out.println("done making panel");
 	}
 
@@ -0,0 +1,156 @@
+package com.asymptote.skyroads;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import com.asymptote.gamelib.graphics.GLState;
+import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.SharedGeometry;
+import com.asymptote.gamelib.graphics.Vertex;
+import com.asymptote.gamelib.graphics.VertexFormat;
+
+/**
+ * All the panels of a level baked into a single mesh, with the vertices
+ * already in world space and the panel colors stored per vertex. The whole
+ * course is drawn with one draw call.
+ *
+ * Vertices are stored as {@link VertexFormat#COLORED}, a third of the
+ * full layout's size.
+ *
+ * Panels are laid out in the given draw order, so any run of consecutive
+ * panels in that order can be drawn on its own with {@link #render(int, int)}.
+ */
+public class PanelBatch extends Renderable
+{
+	private int numPanels;
+	
+	public PanelBatch(LevelData data)
+	{
+		this(data, null);
+	}
+	
+	/**
+	 * @param order	the panel ids in the order they should be laid out, or null
+	 * 				to use the order they were defined in.
+	 */
+	public PanelBatch(LevelData data, int[] order)
+	{
+		this(bakeVerts(data, order), bakeIndices(data.getPanelCount()), data.getPanelCount());
+	}
+	
+	/**
+	 * Uploads vertices and indices already made by {@link #bakeVerts} and
+	 * {@link #bakeIndices}, so the baking can be done off the GL thread.
+	 */
+	public PanelBatch(float[] verts, int[] indices, int numPanels)
+	{
+		super(VertexFormat.COLORED);
+		
+		this.numPanels = numPanels;
+		
+		loadInterleaved(verts);
+		loadIndices(indices);
+		
+		// Never rewritten, so there's no need to hold on to a second copy.
+		discardVertexData();
+	}
+	
+	/**
+	 * Draws from the buffers of another batch, shared through
+	 * {@link #share()}, instead of uploading its own.
+	 */
+	public PanelBatch(SharedGeometry geometry, int numPanels)
+	{
+		super(geometry, null);
+		
+		this.numPanels = numPanels;
+	}
+	
+	/**
+	 * The interleaved vertices of every panel in the data, in the given
+	 * order (or the order they were defined in, if null). Touches no GL
+	 * state, so it can run on any thread.
+	 */
+	public static float[] bakeVerts(LevelData data, int[] order)
+	{
+		int count = data.getPanelCount();
+		
+		float[] verts = new float[count*Panel.NUM_VERTS*Vertex.NUM_ELEMENTS];
+		
+		int v = 0;
+		
+		for (int k = 0; k < count; k++)
+		{
+			int i = (order != null) ? order[k] : k;
+			float[] corners = Panel.makeVerts(data.getHorzPos(i), data.getDistance(i), data.getAltitude(i),
+											  data.getWidth(i), data.getLength(i), data.getHeight(i));
+			float[] color = Panel.displayColor(data.getType(i), data.getColor(i));
+			
+			for (int c = 0; c < Panel.NUM_VERTS; c++)
+			{
+				int start = v;
+				
+				for (int j = 0; j < Vertex.POS_COUNT; j++)
+					verts[v++] = corners[c*Vertex.POS_COUNT + j];
+				
+				for (int j = 0; j < Vertex.COL_COUNT; j++)
+					verts[v++] = color[j];
+				
+				// Texture coordinates and normals are left zeroed.
+				v = start + Vertex.NUM_ELEMENTS;
+			}
+		}
+		
+		return verts;
+	}
+	
+	/**
+	 * The indices for count panels laid out one after the other.
+	 */
+	public static int[] bakeIndices(int count)
+	{
+		int[] indices = new int[count*Panel.INDICES.length];
+		
+		int n = 0;
+		
+		for (int k = 0; k < count; k++)
+		{
+			int base = k*Panel.NUM_VERTS;
+			for (byte index : Panel.INDICES)
+				indices[n++] = base + index;
+		}
+		
+		return indices;
+	}
+	
+	public int getNumPanels()
+	{
+		return numPanels;
+	}
+	
+	@Override
+	public void update(double delta)
+	{
+	}
+	
+	/**
+	 * Draws count panels, starting with the first'th panel in draw order.
+	 */
+	public void render(int first, int count)
+	{
+		if (count <= 0)
+			return;
+		
+		applyModelMatrix();
+		
+		GLState.bindVertexArray(getVertArray());
+		enableAttributes();
+		
+		GLState.polygonMode(isFilled() ? GL11.GL_FILL : GL11.GL_LINE);
+		
+		int perPanel = Panel.INDICES.length;
+		
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());
+		GL11.glDrawElements(GL11.GL_TRIANGLES, count*perPanel, getIndexMode(), (long)first*perPanel*4);
+	}
+}
@@ -0,0 +1,233 @@
+package com.asymptote.skyroads;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the horizontal footprint (horizontal position and
+ * distance) of every panel in a level. Each cell keeps the ids of the panels
+ * that overlap it, in the order they were added, so a point query only has to
+ * look at the handful of panels sharing the point's cell instead of the whole
+ * course.
+ *
+ * Panels are added with {@link #add}, then the grid is laid out once with
+ * {@link #build}. Ids are handed out in insertion order, and a query returns
+ * the lowest id that contains the point, which matches what a linear scan over
+ * the same panels would find.
+ */
+public class PanelIndex
+{
+	public static final int DEFAULT_CELL_SIZE = 10;
+
+	// Keeps a sparse level with a stray far-off panel from blowing up the grid.
+	private static final int MIN_CELL_BUDGET = 4096;
+	private static final int CELLS_PER_PANEL = 4;
+
+	private static final int MIN_X = 0;
+	private static final int MIN_Y = 1;
+	private static final int MAX_X = 2;
+	private static final int MAX_Y = 3;
+	private static final int TOP = 4;
+	private static final int BOTTOM = 5;
+	private static final int FIELDS = 6;
+
+	private int cellSize;
+
+	private int[] bounds;
+	private int count;
+
+	private int originX;
+	private int originY;
+	private int cols;
+	private int rows;
+
+	private int[] cellStart;
+	private int[] cellItems;
+
+	public PanelIndex()
+	{
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	public PanelIndex(int cellSize)
+	{
+		this.cellSize = (cellSize > 0) ? cellSize : DEFAULT_CELL_SIZE;
+		this.bounds = new int[16*FIELDS];
+	}
+
+	/**
+	 * Adds a panel's bounds to the index, using the same parameters as a
+	 * {@link Panel}. Returns the id the panel will be reported under.
+	 */
+	public int add(int horzPos, int distance, int altitude, int width, int length, int height)
+	{
+		if (cellStart != null)
+			throw new IllegalStateException("Panels cannot be added after the index has been built.");
+
+		if ((count+1)*FIELDS > bounds.length)
+			bounds = Arrays.copyOf(bounds, bounds.length*2);
+
+		int i = count*FIELDS;
+		bounds[i+MIN_X] = horzPos;
+		bounds[i+MIN_Y] = distance;
+		bounds[i+MAX_X] = horzPos+width;
+		bounds[i+MAX_Y] = distance+length;
+		bounds[i+TOP] = altitude;
+		bounds[i+BOTTOM] = altitude-height;
+
+		return count++;
+	}
+
+	public void build()
+	{
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (int id = 0; id < count; id++)
+		{
+			if (isEmpty(id))
+				continue;
+
+			int i = id*FIELDS;
+			minX = Math.min(minX, bounds[i+MIN_X]);
+			minY = Math.min(minY, bounds[i+MIN_Y]);
+			maxX = Math.max(maxX, bounds[i+MAX_X]);
+			maxY = Math.max(maxY, bounds[i+MAX_Y]);
+		}
+
+		if (minX > maxX)
+		{
+			// Nothing that can be collided with.
+			originX = originY = 0;
+			cols = rows = 0;
+			cellStart = new int[1];
+			cellItems = new int[0];
+			return;
+		}
+
+		originX = minX;
+		originY = minY;
+
+		long budget = Math.max(MIN_CELL_BUDGET, (long)count*CELLS_PER_PANEL);
+		while (cellCount(maxX, maxY) > budget)
+			cellSize *= 2;
+
+		cols = (maxX-originX)/cellSize + 1;
+		rows = (maxY-originY)/cellSize + 1;
+
+		// First pass counts the panels in each cell, second pass places them.
+		// Ids are visited in ascending order, so every cell ends up sorted.
+		cellStart = new int[cols*rows + 1];
+
+		for (int id = 0; id < count; id++)
+		{
+			if (isEmpty(id))
+				continue;
+
+			int i = id*FIELDS;
+			int c0 = (bounds[i+MIN_X]-originX)/cellSize;
+			int c1 = (bounds[i+MAX_X]-originX)/cellSize;
+			int r0 = (bounds[i+MIN_Y]-originY)/cellSize;
+			int r1 = (bounds[i+MAX_Y]-originY)/cellSize;
+
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					cellStart[r*cols + c + 1]++;
+		}
+
+		for (int c = 0; c < cols*rows; c++)
+			cellStart[c+1] += cellStart[c];
+
+		cellItems = new int[cellStart[cols*rows]];
+		int[] fill = Arrays.copyOf(cellStart, cols*rows);
+
+		for (int id = 0; id < count; id++)
+		{
+			if (isEmpty(id))
+				continue;
+
+			int i = id*FIELDS;
+			int c0 = (bounds[i+MIN_X]-originX)/cellSize;
+			int c1 = (bounds[i+MAX_X]-originX)/cellSize;
+			int r0 = (bounds[i+MIN_Y]-originY)/cellSize;
+			int r1 = (bounds[i+MAX_Y]-originY)/cellSize;
+
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					cellItems[fill[r*cols + c]++] = id;
+		}
+	}
+
+	/**
+	 * Finds the first panel containing the given point, or -1 if the point is
+	 * not inside any panel.
+	 */
+	public int find(float x, float y, float z)
+	{
+		if (cellStart == null)
+			throw new IllegalStateException("The index has to be built before it can be queried.");
+
+		int c = (int)Math.floor((x-originX)/cellSize);
+		int r = (int)Math.floor((y-originY)/cellSize);
+
+		if (c < 0 || c >= cols || r < 0 || r >= rows)
+			return -1;
+
+		int cell = r*cols + c;
+		for (int n = cellStart[cell]; n < cellStart[cell+1]; n++)
+		{
+			int id = cellItems[n];
+			int i = id*FIELDS;
+
+			if ((x >= bounds[i+MIN_X] && x <= bounds[i+MAX_X]) &&
+				(y >= bounds[i+MIN_Y] && y <= bounds[i+MAX_Y]) &&
+				(z <= bounds[i+TOP] && z >= bounds[i+BOTTOM]))
+				return id;
+		}
+
+		return -1;
+	}
+
+	public int find(float[] pos)
+	{
+		return find(pos[0], pos[1], pos[2]);
+	}
+
+	public int size()
+	{
+		return count;
+	}
+
+	public int getCellSize()
+	{
+		return cellSize;
+	}
+
+	/**
+	 * Roughly how much memory the index takes.
+	 */
+	public long getByteSize()
+	{
+		long words = bounds.length;
+
+		if (cellStart != null)
+			words += cellStart.length + cellItems.length;
+
+		return words*4;
+	}
+
+	// A panel with a negative dimension can never contain a point.
+	private boolean isEmpty(int id)
+	{
+		int i = id*FIELDS;
+		return 	bounds[i+MAX_X] < bounds[i+MIN_X] ||
+				bounds[i+MAX_Y] < bounds[i+MIN_Y] ||
+				bounds[i+BOTTOM] > bounds[i+TOP];
+	}
+
+	private long cellCount(int maxX, int maxY)
+	{
+		return (long)((maxX-originX)/cellSize + 1) * ((maxY-originY)/cellSize + 1);
+	}
+}
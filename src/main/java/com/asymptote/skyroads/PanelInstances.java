@@ -0,0 +1,179 @@
+package com.asymptote.skyroads;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import com.asymptote.gamelib.graphics.GLState;
+import com.asymptote.gamelib.graphics.Renderable;
+import com.asymptote.gamelib.graphics.ShaderProgram;
+import com.asymptote.gamelib.graphics.Vertex;
+import com.asymptote.gamelib.graphics.VertexFormat;
+
+/**
+ * Draws every panel of a level as an instance of one shared unit box. Each
+ * instance only stores its position, size and color, and the box is placed in
+ * the vertex shader, so the whole course is one instanced draw call and only a
+ * single pair of buffers is created for it.
+ *
+ * Instances are stored in the given draw order, so any run of consecutive
+ * panels in that order can be drawn on its own with {@link #render(int, int)}.
+ */
+public class PanelInstances extends Renderable
+{
+	public static final int OFFSET_ATTRIB = 4;
+	public static final int SIZE_ATTRIB = 5;
+	
+	private static final int OFFSET_COUNT = 3;
+	private static final int SIZE_COUNT = 3;
+	private static final int INSTANCE_ELEMENTS = OFFSET_COUNT + SIZE_COUNT + Vertex.COL_COUNT;
+	
+	private static final int OFFSET_OFFSET = 0;
+	private static final int SIZE_OFFSET = OFFSET_OFFSET + OFFSET_COUNT*Vertex.FLOAT_SIZE;
+	private static final int COLOR_OFFSET = SIZE_OFFSET + SIZE_COUNT*Vertex.FLOAT_SIZE;
+	private static final int INSTANCE_STRIDE = INSTANCE_ELEMENTS*Vertex.FLOAT_SIZE;
+	
+	// Shared by every instance, and freed with the last.
+	private static ShaderProgram instanceProg;
+	private static int users;
+	
+	private int instanceID;
+	private int numInstances;
+	
+	public PanelInstances(LevelData data)
+	{
+		this(data, null);
+	}
+	
+	/**
+	 * @param order	the panel ids in the order they should be stored, or null
+	 * 				to use the order they were defined in.
+	 */
+	public PanelInstances(LevelData data, int[] order)
+	{
+		super(VertexFormat.COLORED);
+		
+		loadVerts(Panel.makeVerts(0, 0, 0, 1, 1, 1));
+		loadIndices(Panel.INDICES);
+		
+		numInstances = data.getPanelCount();
+		
+		FloatBuffer instances = BufferUtils.createFloatBuffer(numInstances*INSTANCE_ELEMENTS);
+		
+		for (int k = 0; k < numInstances; k++)
+		{
+			int i = (order != null) ? order[k] : k;
+			instances.put(data.getHorzPos(i)).put(data.getDistance(i)).put(data.getAltitude(i));
+			instances.put(data.getWidth(i)).put(data.getLength(i)).put(data.getHeight(i));
+			instances.put(Panel.displayColor(data.getType(i), data.getColor(i)));
+		}
+		
+		instances.flip();
+		
+		instanceID = GL15.glGenBuffers();
+		
+		GLState.bindVertexArray(getVertArray());
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, instanceID);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, instances, GL15.GL_STATIC_DRAW);
+		
+		pointInstanceAttribs(0);
+		
+		// Advance these once per box instead of once per corner.
+		GL33.glVertexAttribDivisor(OFFSET_ATTRIB, 1);
+		GL33.glVertexAttribDivisor(SIZE_ATTRIB, 1);
+		GL33.glVertexAttribDivisor(Vertex.COL_ATTRIB, 1);
+		
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		GLState.bindVertexArray(0);
+		
+		if (instanceProg == null)
+		{
+			Map<String, Integer> attribs = new HashMap<String, Integer>();
+			attribs.put("in_Offset", OFFSET_ATTRIB);
+			attribs.put("in_Size", SIZE_ATTRIB);
+			
+			instanceProg = new ShaderProgram("src/main/glsl/panel_instanced.vert", "src/main/glsl/basic.frag", attribs);
+		}
+		
+		users++;
+	}
+	
+	public int getNumInstances()
+	{
+		return numInstances;
+	}
+	
+	@Override
+	public void free()
+	{
+		GLState.deleteBuffer(instanceID);
+		
+		super.free();
+		
+		if (--users == 0)
+		{
+			instanceProg.free();
+			instanceProg = null;
+		}
+	}
+	
+	@Override
+	public void update(double delta)
+	{
+	}
+	
+	// Points the per instance attributes at the first'th instance onward.
+	private void pointInstanceAttribs(int first)
+	{
+		long base = (long)first*INSTANCE_STRIDE;
+		
+		GL20.glVertexAttribPointer(OFFSET_ATTRIB, OFFSET_COUNT, GL11.GL_FLOAT, false, INSTANCE_STRIDE, base + OFFSET_OFFSET);
+		GL20.glVertexAttribPointer(SIZE_ATTRIB, SIZE_COUNT, GL11.GL_FLOAT, false, INSTANCE_STRIDE, base + SIZE_OFFSET);
+		GL20.glVertexAttribPointer(Vertex.COL_ATTRIB, Vertex.COL_COUNT, GL11.GL_FLOAT, false, INSTANCE_STRIDE, base + COLOR_OFFSET);
+	}
+	
+	@Override
+	public void render()
+	{
+		render(0, numInstances);
+	}
+	
+	/**
+	 * Draws count panels, starting with the first'th panel in draw order.
+	 */
+	public void render(int first, int count)
+	{
+		if (count <= 0)
+			return;
+		
+		ShaderProgram prev = ShaderProgram.getGlobal();
+		
+		instanceProg.use();
+		
+		GLState.bindVertexArray(getVertArray());
+		GLState.enableVertexAttribArray(Vertex.POS_ATTRIB);
+		GLState.enableVertexAttribArray(Vertex.COL_ATTRIB);
+		GLState.enableVertexAttribArray(OFFSET_ATTRIB);
+		GLState.enableVertexAttribArray(SIZE_ATTRIB);
+		
+		GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, instanceID);
+		pointInstanceAttribs(first);
+		
+		GLState.polygonMode(isFilled() ? GL11.GL_FILL : GL11.GL_LINE);
+		
+		GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, getIndexBuffer());
+		GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, getNumIndices(), getIndexMode(), 0, count);
+		
+		if (prev != null)
+			prev.use();
+		else
+			instanceProg.disable();
+	}
+}
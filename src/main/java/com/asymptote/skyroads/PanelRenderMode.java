@@ -0,0 +1,11 @@
+package com.asymptote.skyroads;
+
+/**
+ * How a level draws its panels.
+ */
+public enum PanelRenderMode
+{
+	INDIVIDUAL,		// One mesh and one draw call per panel.
+	BATCHED,		// Every panel baked into one world space mesh at load time.
+	INSTANCED;		// One shared box, drawn once per panel with instancing.
+}
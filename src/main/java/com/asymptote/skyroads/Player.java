@@ -1,5 +1,7 @@
 package com.asymptote.skyroads;
 
+import java.util.Random;
+
 public class Player
 {
 	public enum State
@@ -16,11 +18,18 @@ public class Player
 	private State pState;
 	private Ship ship;
 	private Level level;
+	private Random random;
 	
 	public Player(Ship ship, Level level)
+	{
+		this(ship, level, new Random());
+	}
+	
+	public Player(Ship ship, Level level, Random random)
 	{
 		this.ship = ship;
 		this.level = level;
+		this.random = random;
 		
 		reset();
 	}
@@ -50,6 +59,10 @@ public class Player
 		float[] finish = level.getFinish();
 		float length = level.getLength();
 		
+		// Endless levels have no progress to show.
+		if (finish == null)
+			return 0;
+		
 		return 1f - (finish[Level.DISTANCE]-ship.getDistance())/length;
 	}
 	
@@ -133,7 +146,7 @@ public class Player
 		{
 			pState = State.SUFFOCATING;
 			
-			int dir = Math.round((float)Math.random());
+			int dir = random.nextInt(2);
 			
 			ship.moveLeft(false);
 			ship.moveRight(false);
@@ -0,0 +1,23 @@
+package com.asymptote.skyroads;
+
+import java.io.IOException;
+
+/**
+ * Where a streamed level gets its panels from, one stretch of distance at a
+ * time. See {@link LevelStream}.
+ */
+public interface SegmentSource
+{
+	/**
+	 * The level's environment and markers, without any panels. A level
+	 * without a finish is endless.
+	 */
+	LevelData getHeader();
+
+	/**
+	 * The panels starting at distances from from (inclusive) up to to
+	 * (exclusive), or null if the level has already ended before from. Called
+	 * from the loader thread, one segment at a time.
+	 */
+	LevelData load(int from, int to) throws IOException;
+}
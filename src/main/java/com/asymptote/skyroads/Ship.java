@@ -12,7 +12,10 @@ import com.asymptote.gamelib.primitives.PointCloud;
 
 public class Ship implements GameObject
 {
-	Renderable mesh = new Cube().setScale(2, 2, 2).setOrigin(-1f, -1f, 0);
+	// Created on the first render, so ships can be simulated without a GL context.
+	private Renderable mesh;
+	private ShaderProgram pointShader;
+	private PointCloud collideCloud;
 
 	private static float DEFAULT_HORZ_SPEED = 10;
 	private static float DEFAULT_ACCELERATE = 20f;
@@ -50,9 +53,6 @@ public class Ship implements GameObject
 	private List<float[]> front;
 	private List<float[]> back;
 	
-	private ShaderProgram pointShader = new ShaderProgram("src/main/glsl/points.vert", "src/main/glsl/points.frag");
-	private PointCloud collideCloud;
-	
 	public Ship() {	}
 	
 	public Ship(float horzSpeed, float maxVel, float accel, float thrust)
@@ -151,9 +151,22 @@ public class Ship implements GameObject
 		velocity[2] = z;
 	}
 	
+	/**
+	 * A new copy of the position. Use {@link #getPosition(float[])} anywhere
+	 * it's called every step.
+	 */
 	public float[] getPosition()
 	{
-		return new float[] {horzPos, distance, altitude};
+		return getPosition(new float[3]);
+	}
+	
+	public float[] getPosition(float[] dest)
+	{
+		dest[0] = horzPos;
+		dest[1] = distance;
+		dest[2] = altitude;
+		
+		return dest;
 	}
 	
 	public void setPosition(int[] pos)
@@ -355,24 +368,36 @@ public class Ship implements GameObject
 		altitude += velocity[2]*delta;
 		
 		//System.out.println(velocity[2]);
-		
-		mesh.setLocation(horzPos, distance, altitude);
-		getCollisionPoints().setLocation(horzPos, distance, altitude);
 	}
 
 	@Override
 	public void render()
 	{
-		// TODO Auto-generated method stub
+		render(horzPos, distance, altitude);
+	}
+	
+	/**
+	 * Draws the ship at the given position, rather than where it currently is.
+	 */
+	public void render(float horzPos, float distance, float altitude)
+	{
+		if (mesh == null)
+		{
+			mesh = new Cube().setScale(2, 2, 2).setOrigin(-1f, -1f, 0);
+			pointShader = new ShaderProgram("src/main/glsl/points.vert", "src/main/glsl/points.frag");
+		}
+		
+		mesh.setLocation(horzPos, distance, altitude);
+		getCollisionPoints().setLocation(horzPos, distance, altitude);
+		
 		mesh.render();
 		
+		// Switching straight between programs, the state cache makes the
+		// switch back free if nothing else changed it.
 		ShaderProgram prev = ShaderProgram.getGlobal();
-		ShaderProgram curr = pointShader;
 		
-		prev.disable();
-		curr.use();
+		pointShader.use();
 		getCollisionPoints().render();
-		curr.disable();
 		prev.use();
 	}
 }
@@ -0,0 +1,111 @@
+package com.asymptote.skyroads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.asymptote.gamelib.core.Clock;
+import com.asymptote.gamelib.core.Input;
+import com.asymptote.gamelib.core.SnapshotBuffer;
+import com.asymptote.gamelib.core.Transformable;
+
+/**
+ * Checks that fixed step updates allocate nothing once running, by reading
+ * this thread's allocation counter around runs of steps. The ship is steered,
+ * jumps, falls off and is reset along the way, every step is published as a
+ * snapshot the way the threaded loop does, and a Transformable is moved and
+ * rotated every step.
+ *
+ * The JIT can briefly allocate while it recompiles code (objects it had
+ * optimized away get created for real on deoptimization), so several rounds
+ * are run and the median has to be zero. Anything that allocates per step,
+ * or on any regular share of steps, shows up in most rounds.
+ */
+public class UpdateAllocationTest
+{
+	private static final String LEVEL = "res/testlevel";
+
+	private static final int WARMUP_STEPS = 200000;
+	private static final int STEPS = 100000;
+	private static final int ROUNDS = 5;
+
+	private static final Input[] STEERING = {Input.UP, Input.LEFT, Input.JUMP, Input.RIGHT, Input.DOWN};
+
+	private static class Body extends Transformable
+	{
+	}
+
+	@Test
+	public void updatesAllocateNothing()
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		assumeTrue("This JVM can't count allocations per thread.", threads.isThreadAllocatedMemorySupported());
+
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Clock.setGoalFPS(30);
+
+		Level level = Level.loadLevel(LEVEL);
+		assertNotNull("Could not load " + LEVEL, level);
+
+		LevelSimulation sim = new LevelSimulation();
+		sim.setSeed(0);
+		sim.setLevel(level);
+		sim.setShip(new Ship());
+		sim.startScene();
+
+		SnapshotBuffer<LevelSnapshot> snapshots = new SnapshotBuffer<LevelSnapshot>(LevelSnapshot::new);
+		Body body = new Body();
+
+		run(sim, snapshots, body, WARMUP_STEPS);
+
+		// The counter itself may cost something, so take that off.
+		long before = threads.getThreadAllocatedBytes(thread);
+		long overhead = threads.getThreadAllocatedBytes(thread) - before;
+
+		long[] allocated = new long[ROUNDS];
+
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			before = threads.getThreadAllocatedBytes(thread);
+			run(sim, snapshots, body, STEPS);
+			allocated[round] = Math.max(0, threads.getThreadAllocatedBytes(thread) - before - overhead);
+		}
+
+		long[] sorted = allocated.clone();
+		Arrays.sort(sorted);
+
+		assertEquals("Bytes allocated by each round of " + STEPS + " steps: " + Arrays.toString(allocated), 0, sorted[ROUNDS/2]);
+	}
+
+	private static void run(LevelSimulation sim, SnapshotBuffer<LevelSnapshot> snapshots, Body body, int steps)
+	{
+		double delta = Clock.fixDelta();
+
+		for (int i = 0; i < steps; i++)
+		{
+			// Press and release a different input every so often.
+			if (i % 15 == 0)
+				sim.handleInput(STEERING[(i/15) % STEERING.length], (i/15) % 2 == 0);
+
+			sim.update(delta);
+
+			if (sim.atEnd() || sim.getShip().getAltitude() < -1000)
+				sim.reset();
+
+			snapshots.getBack().capture(sim);
+			snapshots.publish(i*delta);
+			snapshots.getLatest();
+
+			body.move(0, 0.1f, 0).rotate(1, 0, 0, 1).setOrientation(i % 360, 0, 1, 0);
+			body.getModelMatrix();
+		}
+	}
+}